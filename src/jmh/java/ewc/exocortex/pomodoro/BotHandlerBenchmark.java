@@ -0,0 +1,297 @@
+package ewc.exocortex.pomodoro;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives every BotHandler state transition in-process.
+ * <p>
+ * Each benchmark restores the session to the state that precedes its transition
+ * (a HashMap remove and put, see {@link #seed(SessionData)}) and then invokes {@link BotHandler#handleRequest} with a
+ * realistic Telegram webhook body, so the numbers cover parsing, routing, the
+ * SessionData withers and the (faked) side effects of one transition.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BotHandlerBenchmark {
+
+    private static final long CHAT_ID = 123456789L;
+
+    private InMemorySessionRepository sessionRepository;
+    private BotHandler handler;
+    private Context context;
+
+    private SessionData idle;
+    private SessionData waitingForDuration;
+    private SessionData waitingForTask;
+    private SessionData waitingForRole;
+    private SessionData waitingForProductType;
+    private SessionData working;
+    private SessionData waitingForExtension;
+    private SessionData waitingForOutcome;
+
+    private Map<String, Object> startRequest;
+    private Map<String, Object> durationRequest;
+    private Map<String, Object> taskRequest;
+    private Map<String, Object> roleRequest;
+    private Map<String, Object> productTypeRequest;
+    private Map<String, Object> timerDoneEvent;
+    private Map<String, Object> extendRequest;
+    private Map<String, Object> finishRequest;
+    private Map<String, Object> outcomeRequest;
+
+    @Setup
+    public void setUp() {
+        sessionRepository = new InMemorySessionRepository();
+        handler = new BotHandler(
+                new SecurityService(CHAT_ID),
+                new FakeTelegramApi(),
+                new FakeIngestionService(),
+                sessionRepository,
+                new NoOpTimerService());
+        context = new SilentContext();
+
+        idle = SessionData.idle(CHAT_ID);
+        waitingForDuration = idle.waitingForDuration();
+        waitingForTask = waitingForDuration.waitingForTask(45);
+        waitingForRole = waitingForTask.waitingForRole("Писать код");
+        waitingForProductType = waitingForRole.waitingForProductType("профессионал");
+        working = waitingForProductType.working("Код", Instant.parse("2026-01-01T10:00:00Z"), "schedule-1");
+        waitingForExtension = working.waitingForExtension();
+        waitingForOutcome = waitingForExtension.waitingForOutcome();
+
+        startRequest = webhook(message("/start"));
+        durationRequest = webhook(callback("duration:45"));
+        taskRequest = webhook(message("Писать код"));
+        roleRequest = webhook(callback("role:профессионал"));
+        productTypeRequest = webhook(message("Код"));
+        timerDoneEvent = Map.of("action", "TIMER_DONE", "chatId", CHAT_ID);
+        extendRequest = webhook(callback("extension:10"));
+        finishRequest = webhook(callback("extension:finish"));
+        outcomeRequest = webhook(message("Сделал парсер, дальше бенчмарки. Устал, но доволен."));
+    }
+
+    @Benchmark
+    public Map<String, Object> start() {
+        seed(idle);
+        return handler.handleRequest(startRequest, context);
+    }
+
+    @Benchmark
+    public Map<String, Object> selectDuration() {
+        seed(waitingForDuration);
+        return handler.handleRequest(durationRequest, context);
+    }
+
+    @Benchmark
+    public Map<String, Object> enterTask() {
+        seed(waitingForTask);
+        return handler.handleRequest(taskRequest, context);
+    }
+
+    @Benchmark
+    public Map<String, Object> selectRole() {
+        seed(waitingForRole);
+        return handler.handleRequest(roleRequest, context);
+    }
+
+    @Benchmark
+    public Map<String, Object> enterProductType() {
+        seed(waitingForProductType);
+        return handler.handleRequest(productTypeRequest, context);
+    }
+
+    @Benchmark
+    public Map<String, Object> timerDone() {
+        seed(working);
+        return handler.handleRequest(timerDoneEvent, context);
+    }
+
+    @Benchmark
+    public Map<String, Object> extend() {
+        seed(waitingForExtension);
+        return handler.handleRequest(extendRequest, context);
+    }
+
+    @Benchmark
+    public Map<String, Object> finish() {
+        seed(waitingForExtension);
+        return handler.handleRequest(finishRequest, context);
+    }
+
+    @Benchmark
+    public Map<String, Object> enterOutcome() {
+        seed(waitingForOutcome);
+        return handler.handleRequest(outcomeRequest, context);
+    }
+
+    /**
+     * Replaces the stored session; saves are compare-and-set, so the previous one is removed first.
+     */
+    private void seed(final SessionData state) {
+        sessionRepository.deleteSession(CHAT_ID);
+        sessionRepository.saveSession(state);
+    }
+
+    // --- Webhook bodies shaped like real Telegram updates ---
+
+    private static Map<String, Object> webhook(final String body) {
+        return Map.of("body", body);
+    }
+
+    static String message(final String text) {
+        return "{\"update_id\":100200300,\"message\":{\"message_id\":42,"
+                + "\"from\":{\"id\":" + CHAT_ID + ",\"is_bot\":false,\"first_name\":\"Евгений\","
+                + "\"username\":\"pomodoro_user\",\"language_code\":\"ru\"},"
+                + "\"chat\":{\"id\":" + CHAT_ID + ",\"first_name\":\"Евгений\",\"username\":\"pomodoro_user\","
+                + "\"type\":\"private\"},\"date\":1767261600,\"text\":\"" + text + "\""
+                + (text.startsWith("/") ? ",\"entities\":[{\"offset\":0,\"length\":" + text.length()
+                        + ",\"type\":\"bot_command\"}]" : "")
+                + "}}";
+    }
+
+    static String callback(final String data) {
+        return "{\"update_id\":100200301,\"callback_query\":{\"id\":\"4382bfdwdsb323b2d9\","
+                + "\"from\":{\"id\":" + CHAT_ID + ",\"is_bot\":false,\"first_name\":\"Евгений\","
+                + "\"username\":\"pomodoro_user\",\"language_code\":\"ru\"},"
+                + "\"message\":{\"message_id\":41,\"from\":{\"id\":7000000001,\"is_bot\":true,"
+                + "\"first_name\":\"Pomodoro\",\"username\":\"pomodoro_bot\"},"
+                + "\"chat\":{\"id\":" + CHAT_ID + ",\"first_name\":\"Евгений\",\"username\":\"pomodoro_user\","
+                + "\"type\":\"private\"},\"date\":1767261590,\"text\":\"Выберите продолжительность сессии (минуты):\","
+                + "\"reply_markup\":{\"inline_keyboard\":["
+                + "[{\"text\":\"5 минут\",\"callback_data\":\"duration:5\"}],"
+                + "[{\"text\":\"30 минут\",\"callback_data\":\"duration:30\"}],"
+                + "[{\"text\":\"45 минут\",\"callback_data\":\"duration:45\"}],"
+                + "[{\"text\":\"60 минут\",\"callback_data\":\"duration:60\"}],"
+                + "[{\"text\":\"90 минут\",\"callback_data\":\"duration:90\"}]]}},"
+                + "\"chat_instance\":\"-5427638921374650000\",\"data\":\"" + data + "\"}}";
+    }
+
+    // --- In-process fakes ---
+
+    /**
+     * Parses with the real TelegramService and swallows outbound calls.
+     */
+    static final class FakeTelegramApi implements TelegramApi {
+        private final TelegramService parser =
+                new TelegramService("benchmark-token", HttpClient.newHttpClient(), new ObjectMapper());
+
+        @Override
+        public Update parseUpdate(final String json) throws IOException {
+            return parser.parseUpdate(json);
+        }
+
+        @Override
+        public void sendMessage(final long chatId, final String text) {
+        }
+
+        @Override
+        public void sendMessageWithKeyboard(final long chatId, final String text, final List<Button> buttons) {
+        }
+
+        @Override
+        public void answerCallbackQuery(final String callbackQueryId) {
+        }
+    }
+
+    static final class FakeIngestionService extends DynamoIngestionService {
+        FakeIngestionService() {
+            super(null);
+        }
+
+        @Override
+        public void ingestSession(final IngestionPayload payload) {
+        }
+    }
+
+    static final class SilentContext implements Context {
+        private static final LambdaLogger LOGGER = new LambdaLogger() {
+            @Override
+            public void log(final String message) {
+            }
+
+            @Override
+            public void log(final byte[] message) {
+            }
+        };
+
+        @Override
+        public String getAwsRequestId() {
+            return "benchmark";
+        }
+
+        @Override
+        public String getLogGroupName() {
+            return "benchmark";
+        }
+
+        @Override
+        public String getLogStreamName() {
+            return "benchmark";
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "benchmark";
+        }
+
+        @Override
+        public String getFunctionVersion() {
+            return "benchmark";
+        }
+
+        @Override
+        public String getInvokedFunctionArn() {
+            return "benchmark";
+        }
+
+        @Override
+        public CognitoIdentity getIdentity() {
+            return null;
+        }
+
+        @Override
+        public ClientContext getClientContext() {
+            return null;
+        }
+
+        @Override
+        public int getRemainingTimeInMillis() {
+            return 30_000;
+        }
+
+        @Override
+        public int getMemoryLimitInMB() {
+            return 512;
+        }
+
+        @Override
+        public LambdaLogger getLogger() {
+            return LOGGER;
+        }
+    }
+}
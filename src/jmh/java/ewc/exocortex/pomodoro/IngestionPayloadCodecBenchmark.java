@@ -0,0 +1,107 @@
+package ewc.exocortex.pomodoro;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plain vs compressed ingestion payloads for Russian-language outcomes around the
+ * compression threshold. Outcomes are a seeded random mix of words, so repetition is
+ * closer to real notes than a repeated phrase would be. Stored sizes are printed once
+ * per trial; time and allocation come from JMH.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionPayloadCodecBenchmark {
+
+    /** A write unit is 1 KB; smaller payloads gain nothing from compression. */
+    private static final int THRESHOLD_BYTES = 1024;
+
+    private static final String[] WORDS = (
+            "сделал черновик раздела архитектура заметки встреча команда заказчик план неделя сроки "
+            + "вопросы список результат следующий шаг согласовать обновить отвлекался чат уведомления "
+            + "энергия внимание сессия конец начало задача тесты ошибка исправил проверил документ "
+            + "отчёт клиент сервер база данных запрос ответ время минут час идея понял не получилось "
+            + "получилось быстро медленно сложно просто снова завтра сегодня потом надо хочу могу "
+            + "и в на с по к для что это как но или уже ещё очень всё").split(" ");
+
+    /** Outcome lengths in characters; Cyrillic takes two bytes, so 512 chars is about the threshold. */
+    @Param({"128", "384", "512", "640", "1024", "4096"})
+    public int outcomeChars;
+
+    private IngestionPayload payload;
+    private IngestionPayloadCodec plain;
+    private IngestionPayloadCodec compressing;
+    private AttributeValue plainValue;
+    private AttributeValue compressedValue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(outcomeChars);
+        final StringBuilder outcome = new StringBuilder(outcomeChars + 32);
+        boolean sentenceStart = true;
+        while (outcome.length() < outcomeChars) {
+            final String word = WORDS[random.nextInt(WORDS.length)];
+            outcome.append(sentenceStart ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            if (random.nextInt(12) == 0) {
+                outcome.append(' ').append(random.nextInt(120));
+            }
+            sentenceStart = random.nextInt(9) == 0;
+            outcome.append(sentenceStart ? ". " : random.nextInt(7) == 0 ? ", " : " ");
+        }
+        final Instant start = Instant.parse("2026-02-01T09:00:00Z");
+        payload = new IngestionPayload("Подготовить отчёт по проекту", "профессионал", "Документ",
+                start, start.plusSeconds(2700), 45, outcome.substring(0, outcomeChars));
+
+        plain = IngestionPayloadCodec.plain();
+        compressing = IngestionPayloadCodec.compressing(THRESHOLD_BYTES);
+        plainValue = plain.encode(payload);
+        compressedValue = compressing.encode(payload);
+
+        final int stored = compressedValue.b() != null
+                ? compressedValue.b().asByteArrayUnsafe().length
+                : compressedValue.s().getBytes(StandardCharsets.UTF_8).length;
+        System.out.printf("%n%d chars: plain %d bytes, with threshold %d bytes (%s)%n", outcomeChars,
+                plainValue.s().getBytes(StandardCharsets.UTF_8).length, stored,
+                compressedValue.b() != null ? "compressed" : "kept plain");
+    }
+
+    @Benchmark
+    public AttributeValue encodePlain() {
+        return plain.encode(payload);
+    }
+
+    @Benchmark
+    public AttributeValue encodeCompressed() {
+        return compressing.encode(payload);
+    }
+
+    @Benchmark
+    public IngestionPayload decodePlain() {
+        return IngestionPayloadCodec.decode(plainValue);
+    }
+
+    @Benchmark
+    public IngestionPayload decodeCompressed() {
+        return IngestionPayloadCodec.decode(compressedValue);
+    }
+}
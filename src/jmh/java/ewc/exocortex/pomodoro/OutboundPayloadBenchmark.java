@@ -0,0 +1,66 @@
+package ewc.exocortex.pomodoro;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call Jackson serialization vs pre-encoded payload splicing for keyboard messages.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutboundPayloadBenchmark {
+
+    private static final long CHAT_ID = 123456789L;
+    private static final String PROMPT = "Время вышло. Что делаем дальше?";
+    private static final List<TelegramApi.Button> EXTENSION_BUTTONS = List.of(
+            new TelegramApi.Button("Завершить", "extension:finish"),
+            new TelegramApi.Button("+5 мин", "extension:5"),
+            new TelegramApi.Button("+10 мин", "extension:10"),
+            new TelegramApi.Button("+15 мин", "extension:15"),
+            new TelegramApi.Button("+20 мин", "extension:20"),
+            new TelegramApi.Button("+30 мин", "extension:30"));
+
+    private ObjectMapper objectMapper;
+    private OutboundPayloadCache cache;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        cache = new OutboundPayloadCache(objectMapper);
+    }
+
+    @Benchmark
+    public byte[] jacksonPerCall() throws JsonProcessingException {
+        final List<List<Map<String, String>>> keyboard = EXTENSION_BUTTONS.stream()
+                .map(b -> List.of(Map.of("text", b.text(), "callback_data", b.callbackData())))
+                .toList();
+        final Map<String, Object> payload = Map.of(
+                "chat_id", CHAT_ID,
+                "text", PROMPT,
+                "reply_markup", Map.of("inline_keyboard", keyboard));
+        return objectMapper.writeValueAsString(payload).getBytes();
+    }
+
+    @Benchmark
+    public byte[] cached() throws JsonProcessingException {
+        return cache.messageWithKeyboard(CHAT_ID, PROMPT, EXTENSION_BUTTONS);
+    }
+}
@@ -0,0 +1,59 @@
+package ewc.exocortex.pomodoro;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tree vs streaming parsing of Telegram webhook bodies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdateParserBenchmark {
+
+    @Param({"message", "callback"})
+    public String kind;
+
+    private TelegramService treeService;
+    private TelegramService streamingService;
+    private String body;
+
+    @Setup
+    public void setUp() {
+        final ObjectMapper mapper = new ObjectMapper();
+        treeService = new TelegramService("benchmark-token", HttpClient.newHttpClient(), mapper,
+                TelegramService.ParseMode.TREE);
+        streamingService = new TelegramService("benchmark-token", HttpClient.newHttpClient(), mapper,
+                TelegramService.ParseMode.STREAMING);
+        body = "callback".equals(kind)
+                ? BotHandlerBenchmark.callback("duration:45")
+                : BotHandlerBenchmark.message("Сделал парсер, дальше бенчмарки.");
+    }
+
+    @Benchmark
+    public TelegramApi.Update tree() throws IOException {
+        return treeService.parseUpdate(body);
+    }
+
+    @Benchmark
+    public TelegramApi.Update streaming() throws IOException {
+        return streamingService.parseUpdate(body);
+    }
+}
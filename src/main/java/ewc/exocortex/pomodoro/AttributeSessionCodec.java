@@ -0,0 +1,72 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Original item layout: one string or number attribute per non-null SessionData field.
+ */
+public final class AttributeSessionCodec implements SessionCodec {
+
+    @Override
+    public Map<String, AttributeValue> encode(final SessionData session) {
+        final Map<String, AttributeValue> item = new HashMap<>();
+        item.put("status", AttributeValue.builder().s(session.status().name()).build());
+
+        putIfNotNull(item, "duration", session.duration() != null ? String.valueOf(session.duration()) : null, true);
+        putIfNotNull(item, "scheduleName", session.scheduleName(), false);
+
+        putIfNotNull(item, "task", session.task(), false);
+        putIfNotNull(item, "role", session.role(), false);
+        putIfNotNull(item, "productType", session.productType(), false);
+
+        putIfNotNull(item, "startTime", session.startTime() != null ? session.startTime().toString() : null, false);
+
+        putIfNotNull(item, "outcome", session.outcome(), false);
+        return item;
+    }
+
+    @Override
+    public SessionData decode(final long chatId, final long version, final Map<String, AttributeValue> item) {
+        return new SessionData(
+                chatId,
+                SessionState.valueOf(getStringOrNull(item, "status")),
+                getIntegerOrNull(item, "duration"),
+                getStringOrNull(item, "scheduleName"),
+                getStringOrNull(item, "task"),
+                getStringOrNull(item, "role"),
+                getStringOrNull(item, "productType"),
+                getInstantOrNull(item, "startTime"),
+                getStringOrNull(item, "outcome"),
+                version);
+    }
+
+    private void putIfNotNull(final Map<String, AttributeValue> item, final String key, final String value,
+            final boolean isNumber) {
+        if (value != null) {
+            if (isNumber) {
+                item.put(key, AttributeValue.builder().n(value).build());
+            } else {
+                item.put(key, AttributeValue.builder().s(value).build());
+            }
+        }
+    }
+
+    private String getStringOrNull(final Map<String, AttributeValue> item, final String key) {
+        final AttributeValue value = item.get(key);
+        return value != null && value.s() != null ? value.s() : null;
+    }
+
+    private Integer getIntegerOrNull(final Map<String, AttributeValue> item, final String key) {
+        final AttributeValue value = item.get(key);
+        return value != null && value.n() != null ? Integer.parseInt(value.n()) : null;
+    }
+
+    private Instant getInstantOrNull(final Map<String, AttributeValue> item, final String key) {
+        final AttributeValue value = item.get(key);
+        return value != null && value.s() != null ? Instant.parse(value.s()) : null;
+    }
+}
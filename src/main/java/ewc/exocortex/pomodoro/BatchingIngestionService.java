@@ -0,0 +1,217 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Ingestion service that buffers sessions and writes them with BatchWriteItem.
+ * <p>
+ * Buffered items are flushed in requests of up to {@value #BATCH_SIZE} once the
+ * buffer reaches {@link Policy#flushSize()}, once the oldest item has waited
+ * {@link Policy#flushDelay()}, or when {@link #flush()} is called. Items that
+ * DynamoDB returns as unprocessed are resent with exponential backoff; if some
+ * are still unprocessed after {@link Policy#maxAttempts()}, they stay in the
+ * buffer and the flush fails. Items leave the buffer only once DynamoDB has
+ * accepted them, so a failed call loses nothing.
+ */
+public class BatchingIngestionService extends DynamoIngestionService {
+
+    static final int BATCH_SIZE = 25;
+
+    /**
+     * Blocks the calling thread between retries; replaceable in tests.
+     */
+    @FunctionalInterface
+    public interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    /**
+     * Flush and retry policy.
+     */
+    public record Policy(int flushSize, Duration flushDelay, int maxAttempts, Duration initialBackoff,
+            Duration maxBackoff) {
+
+        /**
+         * Defaults for bulk imports: full batches, short backoff.
+         */
+        public static Policy defaults() {
+            return new Policy(BATCH_SIZE, Duration.ofSeconds(5), 8, Duration.ofMillis(50), Duration.ofSeconds(5));
+        }
+    }
+
+    private final DynamoDbClient dynamoDb;
+    private final Policy policy;
+    private final LongSupplier nanoClock;
+    private final Sleeper sleeper;
+
+    private final List<Map<String, AttributeValue>> buffer = new ArrayList<>();
+    private long oldestBufferedAt;
+    private ScheduledExecutorService timer;
+
+    public BatchingIngestionService(final DynamoDbClient dynamoDb, final Policy policy) {
+        this(dynamoDb, IngestionPayloadCodec.plain(), policy);
+    }
+
+    public BatchingIngestionService(final DynamoDbClient dynamoDb, final IngestionPayloadCodec payloadCodec,
+            final Policy policy) {
+        this(dynamoDb, payloadCodec, policy, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    /**
+     * Constructor for testing with a controllable clock and sleeper.
+     */
+    BatchingIngestionService(final DynamoDbClient dynamoDb, final IngestionPayloadCodec payloadCodec,
+            final Policy policy, final LongSupplier nanoClock, final Sleeper sleeper) {
+        super(dynamoDb, payloadCodec);
+        this.dynamoDb = dynamoDb;
+        this.policy = policy;
+        this.nanoClock = nanoClock;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Buffers the session; flushes if the size or time limit is reached.
+     */
+    @Override
+    public void ingestSession(final IngestionPayload payload) {
+        final Map<String, AttributeValue> item = toItem(payload);
+        synchronized (this) {
+            if (buffer.isEmpty()) {
+                oldestBufferedAt = nanoClock.getAsLong();
+            }
+            buffer.add(item);
+        }
+        flushIfDue();
+    }
+
+    @Override
+    public void ingestAll(final Collection<IngestionPayload> payloads) {
+        for (final IngestionPayload payload : payloads) {
+            ingestSession(payload);
+        }
+    }
+
+    /**
+     * Flushes if the buffer is full or its oldest item has waited long enough.
+     */
+    public void flushIfDue() {
+        final boolean due;
+        synchronized (this) {
+            due = buffer.size() >= policy.flushSize()
+                    || !buffer.isEmpty() && nanoClock.getAsLong() - oldestBufferedAt >= policy.flushDelay().toNanos();
+        }
+        if (due) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes out every buffered item.
+     *
+     * @throws IllegalStateException if items stay unprocessed after all attempts (they are kept buffered)
+     */
+    @Override
+    public synchronized void flush() {
+        while (!buffer.isEmpty()) {
+            final int size = Math.min(BATCH_SIZE, buffer.size());
+            final List<Map<String, AttributeValue>> chunk = buffer.subList(0, size);
+
+            // The chunk stays buffered until it is acknowledged; an exception leaves it in place
+            final List<WriteRequest> unprocessed = writeWithRetry(chunk);
+            chunk.clear();
+            if (!unprocessed.isEmpty()) {
+                final List<Map<String, AttributeValue>> remaining = new ArrayList<>(unprocessed.size());
+                for (final WriteRequest request : unprocessed) {
+                    remaining.add(request.putRequest().item());
+                }
+                buffer.addAll(0, remaining);
+                oldestBufferedAt = nanoClock.getAsLong();
+                throw new IllegalStateException(unprocessed.size() + " ingestion items still unprocessed after "
+                        + policy.maxAttempts() + " attempts");
+            }
+        }
+    }
+
+    /**
+     * Returns the number of buffered items.
+     */
+    public synchronized int buffered() {
+        return buffer.size();
+    }
+
+    /**
+     * Starts a daemon timer that applies the flush delay while no new sessions arrive.
+     * Only useful in long-running processes; a frozen Lambda container never runs it.
+     */
+    public synchronized BatchingIngestionService startTimer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().factory());
+            final long period = Math.max(1, policy.flushDelay().toMillis());
+            timer.scheduleWithFixedDelay(this::flushQuietly, period, period, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Stops the timer and flushes what is left.
+     */
+    public void close() {
+        synchronized (this) {
+            if (timer != null) {
+                timer.shutdownNow();
+                timer = null;
+            }
+        }
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flushIfDue();
+        } catch (RuntimeException e) {
+            // Items stay buffered; the next tick or flush() retries them
+        }
+    }
+
+    private List<WriteRequest> writeWithRetry(final List<Map<String, AttributeValue>> items) {
+        List<WriteRequest> requests = new ArrayList<>(items.size());
+        for (final Map<String, AttributeValue> item : items) {
+            requests.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+        }
+
+        long backoff = policy.initialBackoff().toNanos();
+        for (int attempt = 1; ; attempt++) {
+            final BatchWriteItemResponse response = dynamoDb.batchWriteItem(BatchWriteItemRequest.builder()
+                    .requestItems(Map.of(TABLE_NAME, requests))
+                    .build());
+            requests = response.hasUnprocessedItems()
+                    ? response.unprocessedItems().getOrDefault(TABLE_NAME, List.of())
+                    : List.of();
+            if (requests.isEmpty() || attempt >= policy.maxAttempts()) {
+                return requests;
+            }
+            try {
+                sleeper.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return requests;
+            }
+            backoff = Math.min(backoff * 2, policy.maxBackoff().toNanos());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact item layout: the whole session packed into one binary {@code data} attribute.
+ * <p>
+ * Layout (format 1):
+ * <pre>
+ * format:u8  status:u8 (SessionState ordinal)  presence flags:u8
+ * [duration: u8 dictionary code, or 0 + i32]
+ * [role:     u8 dictionary code, or 0 + string]
+ * [startTime: i64 epoch millis]
+ * [scheduleName] [task] [productType] [outcome]   strings: varint length + UTF-8
+ * </pre>
+ * {@code status} is also kept as a plain attribute so the item stays readable in
+ * the console and usable in condition expressions.
+ * The dictionaries are persisted by position: only ever append to them.
+ */
+public final class BinarySessionCodec implements SessionCodec {
+
+    public static final String DATA = "data";
+
+    static final byte FORMAT = 1;
+
+    private static final List<Integer> DURATIONS = List.of(5, 30, 45, 60, 90);
+    private static final List<String> ROLES = List.of(
+            "ученик", "интеллектуал", "профессионал", "исследователь", "просветитель");
+
+    private static final int HAS_DURATION = 1;
+    private static final int HAS_SCHEDULE_NAME = 1 << 1;
+    private static final int HAS_TASK = 1 << 2;
+    private static final int HAS_ROLE = 1 << 3;
+    private static final int HAS_PRODUCT_TYPE = 1 << 4;
+    private static final int HAS_START_TIME = 1 << 5;
+    private static final int HAS_OUTCOME = 1 << 6;
+
+    private static final SessionState[] STATES = SessionState.values();
+
+    @Override
+    public Map<String, AttributeValue> encode(final SessionData session) {
+        final Map<String, AttributeValue> item = new HashMap<>();
+        item.put("status", AttributeValue.builder().s(session.status().name()).build());
+        item.put(DATA, AttributeValue.builder().b(SdkBytes.fromByteArrayUnsafe(toBytes(session))).build());
+        return item;
+    }
+
+    @Override
+    public SessionData decode(final long chatId, final long version, final Map<String, AttributeValue> item) {
+        return fromBytes(chatId, version, item.get(DATA).b().asByteArrayUnsafe());
+    }
+
+    static byte[] toBytes(final SessionData session) {
+        final int durationCode = session.duration() != null ? DURATIONS.indexOf(session.duration()) + 1 : 0;
+        final int roleCode = session.role() != null ? ROLES.indexOf(session.role()) + 1 : 0;
+        final byte[] role = roleCode == 0 ? utf8(session.role()) : null;
+        final byte[] scheduleName = utf8(session.scheduleName());
+        final byte[] task = utf8(session.task());
+        final byte[] productType = utf8(session.productType());
+        final byte[] outcome = utf8(session.outcome());
+
+        int flags = 0;
+        int size = 3;
+        if (session.duration() != null) {
+            flags |= HAS_DURATION;
+            size += durationCode > 0 ? 1 : 5;
+        }
+        if (session.role() != null) {
+            flags |= HAS_ROLE;
+            size += 1 + (roleCode > 0 ? 0 : sizeOf(role));
+        }
+        if (session.startTime() != null) {
+            flags |= HAS_START_TIME;
+            size += Long.BYTES;
+        }
+        if (scheduleName != null) {
+            flags |= HAS_SCHEDULE_NAME;
+            size += sizeOf(scheduleName);
+        }
+        if (task != null) {
+            flags |= HAS_TASK;
+            size += sizeOf(task);
+        }
+        if (productType != null) {
+            flags |= HAS_PRODUCT_TYPE;
+            size += sizeOf(productType);
+        }
+        if (outcome != null) {
+            flags |= HAS_OUTCOME;
+            size += sizeOf(outcome);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(FORMAT).put((byte) session.status().ordinal()).put((byte) flags);
+        if (session.duration() != null) {
+            buffer.put((byte) durationCode);
+            if (durationCode == 0) {
+                buffer.putInt(session.duration());
+            }
+        }
+        if (session.role() != null) {
+            buffer.put((byte) roleCode);
+            if (roleCode == 0) {
+                putString(buffer, role);
+            }
+        }
+        if (session.startTime() != null) {
+            buffer.putLong(session.startTime().toEpochMilli());
+        }
+        putString(buffer, scheduleName);
+        putString(buffer, task);
+        putString(buffer, productType);
+        putString(buffer, outcome);
+        return buffer.array();
+    }
+
+    static SessionData fromBytes(final long chatId, final long version, final byte[] data) {
+        checkFormat(data);
+        final ByteBuffer buffer = ByteBuffer.wrap(data, 1, data.length - 1);
+        final SessionState status = STATES[buffer.get()];
+        final int flags = buffer.get();
+
+        Integer duration = null;
+        if ((flags & HAS_DURATION) != 0) {
+            final int code = buffer.get();
+            duration = code > 0 ? DURATIONS.get(code - 1) : buffer.getInt();
+        }
+        String role = null;
+        if ((flags & HAS_ROLE) != 0) {
+            final int code = buffer.get();
+            role = code > 0 ? ROLES.get(code - 1) : getString(buffer);
+        }
+        final Instant startTime = (flags & HAS_START_TIME) != 0 ? Instant.ofEpochMilli(buffer.getLong()) : null;
+        final String scheduleName = (flags & HAS_SCHEDULE_NAME) != 0 ? getString(buffer) : null;
+        final String task = (flags & HAS_TASK) != 0 ? getString(buffer) : null;
+        final String productType = (flags & HAS_PRODUCT_TYPE) != 0 ? getString(buffer) : null;
+        final String outcome = (flags & HAS_OUTCOME) != 0 ? getString(buffer) : null;
+
+        return new SessionData(chatId, status, duration, scheduleName,
+                task, role, productType, startTime,
+                outcome, version);
+    }
+
+    private static void checkFormat(final byte[] data) {
+        if (data.length < 3 || data[0] != FORMAT) {
+            throw new IllegalArgumentException("Unsupported session data format: "
+                    + (data.length == 0 ? "empty" : String.valueOf(data[0])));
+        }
+    }
+
+    private static byte[] utf8(final String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int sizeOf(final byte[] string) {
+        int size = string.length + 1;
+        for (int length = string.length >>> 7; length != 0; length >>>= 7) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void putString(final ByteBuffer buffer, final byte[] string) {
+        if (string == null) {
+            return;
+        }
+        int length = string.length;
+        while ((length & ~0x7F) != 0) {
+            buffer.put((byte) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        buffer.put((byte) length);
+        buffer.put(string);
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        // Decode straight from the backing array, without an intermediate copy
+        final String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -2,8 +2,10 @@ package ewc.exocortex.pomodoro;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
@@ -35,11 +37,25 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
             new TelegramApi.Button("+20 мин", "extension:20"),
             new TelegramApi.Button("+30 мин", "extension:30"));
 
+    /**
+     * A state transition computed from the session it is given.
+     */
+    @FunctionalInterface
+    private interface Transition {
+        void apply(SessionData session) throws IOException, InterruptedException;
+    }
+
     private final SecurityService securityService;
     private final TelegramApi telegramApi;
     private final DynamoIngestionService ingestionService;
     private final SessionRepository sessionRepository;
     private final TimerService timerService;
+    private final WebhookReplyTelegramApi webhookReply;
+    private final SideEffects sideEffects;
+    private final SessionCompletion sessionCompletion;
+    private final SpillQueue spillQueue;
+    private final UpdateDeduplicator deduplicator;
+    private final WebhookFilter webhookFilter;
 
     /**
      * Default constructor used by AWS Lambda.
@@ -47,10 +63,20 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
      */
     public BotHandler() {
         this.securityService = SecurityService.fromEnvironment();
-        this.telegramApi = TelegramService.fromEnvironment();
-        this.sessionRepository = DynamoSessionRepository.create();
+        this.telegramApi = telegramFromEnvironment();
+        this.sessionRepository = CachingSessionRepository.fromEnvironment(DynamoSessionRepository.create());
         this.timerService = SchedulerTimerService.fromEnvironment();
         this.ingestionService = DynamoIngestionService.create();
+        this.webhookReply = telegramApi instanceof WebhookReplyTelegramApi reply ? reply : null;
+        this.sideEffects = SideEffects.fromEnvironment();
+        this.sessionCompletion = "false".equalsIgnoreCase(System.getenv("ATOMIC_COMPLETION"))
+                ? SessionCompletion.sequential(ingestionService, sessionRepository)
+                : DynamoSessionCompletion.create(ingestionService);
+        this.spillQueue = SpillQueue.fromEnvironment();
+        this.deduplicator = "false".equalsIgnoreCase(System.getenv("UPDATE_DEDUP"))
+                ? null
+                : UpdateDeduplicator.create();
+        this.webhookFilter = WebhookFilter.fromEnvironment(securityService);
     }
 
     /**
@@ -62,11 +88,63 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
             final DynamoIngestionService ingestionService,
             final SessionRepository sessionRepository,
             final TimerService timerService) {
+        this(securityService, telegramApi, ingestionService, sessionRepository, timerService,
+                SideEffects.sequential(), SessionCompletion.sequential(ingestionService, sessionRepository),
+                null, null, new WebhookFilter(null, securityService));
+    }
+
+    /**
+     * Creates a handler with every collaborator injected; used by tests and the other entry points.
+     *
+     * @param spillQueue   null to report ingestion failures instead of spilling
+     * @param deduplicator null to process every delivery
+     */
+    BotHandler(
+            final SecurityService securityService,
+            final TelegramApi telegramApi,
+            final DynamoIngestionService ingestionService,
+            final SessionRepository sessionRepository,
+            final TimerService timerService,
+            final SideEffects sideEffects,
+            final SessionCompletion sessionCompletion,
+            final SpillQueue spillQueue,
+            final UpdateDeduplicator deduplicator,
+            final WebhookFilter webhookFilter) {
         this.securityService = securityService;
         this.telegramApi = telegramApi;
         this.ingestionService = ingestionService;
         this.sessionRepository = sessionRepository;
         this.timerService = timerService;
+        this.webhookReply = telegramApi instanceof WebhookReplyTelegramApi reply ? reply : null;
+        this.sideEffects = sideEffects;
+        this.sessionCompletion = sessionCompletion;
+        this.spillQueue = spillQueue;
+        this.deduplicator = deduplicator;
+        this.webhookFilter = webhookFilter;
+    }
+
+    /**
+     * Creates the Telegram client. Outbound calls go through the rate limiter unless
+     * TELEGRAM_RATE_LIMIT=false. Setting TELEGRAM_WEBHOOK_REPLY=true returns the main
+     * reply of each webhook transition in the HTTP response instead of a separate API call.
+     * The connection is opened here, during container init, so the first reply does not
+     * pay for the TLS handshake.
+     */
+    private static TelegramApi telegramFromEnvironment() {
+        final TelegramService service = TelegramService.fromEnvironment();
+        try {
+            service.warmUp();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        TelegramApi telegram = service;
+        if (!"false".equalsIgnoreCase(System.getenv("TELEGRAM_RATE_LIMIT"))) {
+            telegram = new RateLimitedTelegramApi(telegram, RateLimitedTelegramApi.Limits.lambdaDefaults());
+        }
+        if ("true".equalsIgnoreCase(System.getenv("TELEGRAM_WEBHOOK_REPLY"))) {
+            telegram = new WebhookReplyTelegramApi(telegram, new OutboundPayloadCache(new ObjectMapper()));
+        }
+        return telegram;
     }
 
     @Override
@@ -74,53 +152,100 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
         try {
             // Check if this is an EventBridge timer event
             if (input.containsKey("action") && "TIMER_DONE".equals(input.get("action"))) {
-                handleTimerDone(input, context);
+                handleTimerDone(((Number) input.get("chatId")).longValue(), context);
                 return successResponse();
             }
 
             // Otherwise, treat as API Gateway event (Telegram webhook)
-            final String body = (String) input.get("body");
-            if (body == null || body.isBlank()) {
-                return successResponse();
+            if (!webhookFilter.acceptsSecret(header(input, WebhookFilter.SECRET_HEADER))) {
+                return unauthorizedResponse();
             }
-
-            final TelegramApi.Update update = telegramApi.parseUpdate(body);
-            if (update == null) {
-                return successResponse();
-            }
-
-            // Security check: only allow the admin user
-            if (!securityService.isAuthorized(update.chatId())) {
-                context.getLogger().log("Unauthorized access attempt from chatId: " + update.chatId());
+            final String body = (String) input.get("body");
+            if (body == null || body.isBlank() || webhookFilter.check(body) != WebhookFilter.Verdict.PROCESS) {
                 return successResponse();
             }
 
-            // Get current session state
-            final SessionData session = sessionRepository.getSession(update.chatId());
-            context.getLogger().log("Processing update for chatId: " + update.chatId() + ", session status: "
-                    + (session != null ? session.status() : "null"));
-
-            // Route based on state and update type
-            routeUpdate(update, session, context);
-
-            return successResponse();
+            beginWebhookReply();
+            processUpdate(telegramApi.parseUpdate(body), context);
+            return webhookResponse(takeWebhookReply());
 
         } catch (Exception e) {
             context.getLogger()
                     .log("CRITICAL ERROR processing request: " + e.getClass().getName() + ": " + e.getMessage());
             e.printStackTrace();
-            return successResponse();
+            // State is persisted before the user is prompted, so a captured reply is still valid
+            return webhookResponse(takeWebhookReply());
         }
     }
 
-    private void handleTimerDone(final Map<String, Object> input, final Context context)
+    /**
+     * Returns the checks to run on a webhook before its update is parsed.
+     */
+    WebhookFilter webhookFilter() {
+        return webhookFilter;
+    }
+
+    /**
+     * Opens the webhook reply slot if webhook-reply mode is enabled.
+     */
+    void beginWebhookReply() {
+        if (webhookReply != null) {
+            webhookReply.beginReply();
+        }
+    }
+
+    /**
+     * Returns the method call captured since {@link #beginWebhookReply()}, or null.
+     */
+    byte[] takeWebhookReply() {
+        return webhookReply != null ? webhookReply.takeReply() : null;
+    }
+
+    /**
+     * Handles an already parsed Telegram update. Shared by all entry points.
+     */
+    void processUpdate(final TelegramApi.Update update, final Context context)
             throws IOException, InterruptedException {
-        final long chatId = ((Number) input.get("chatId")).longValue();
+        if (update == null) {
+            return;
+        }
+
+        // Security check: only allow the admin user
+        if (!securityService.isAuthorized(update.chatId())) {
+            context.getLogger().log("Unauthorized access attempt from chatId: " + update.chatId());
+            return;
+        }
+
+        // Telegram redelivers updates it thinks failed; drop those unless the earlier attempt's lease lapsed
+        if (deduplicator != null && !deduplicator.firstDelivery(update.updateId())) {
+            context.getLogger().log("Duplicate update " + update.updateId() + " ignored for chatId: "
+                    + update.chatId());
+            return;
+        }
+        drainSpilledSessions();
 
+        // Get current session state
+        final SessionData session = sessionRepository.getSession(update.chatId());
+        context.getLogger().log("Processing update for chatId: " + update.chatId() + ", session status: "
+                + (session != null ? session.status() : "null"));
+
+        // Route based on state and update type
+        routeUpdate(update, session, context);
+        if (deduplicator != null) {
+            deduplicator.processed(update.updateId());
+        }
+    }
+
+    /**
+     * Handles a TIMER_DONE event for the given chat. Shared by all entry points.
+     */
+    void handleTimerDone(final long chatId, final Context context)
+            throws IOException, InterruptedException {
         // Verify chat is authorized
         if (!securityService.isAuthorized(chatId)) {
             return;
         }
+        drainSpilledSessions();
 
         final SessionData session = sessionRepository.getSession(chatId);
 
@@ -134,8 +259,51 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
         context.getLogger().log("Timer done for chatId: " + chatId + ". Transitioning to WAITING_FOR_EXTENSION.");
 
         // Transition to WAITING_FOR_EXTENSION to offer extension or finish
-        sessionRepository.saveSession(session.waitingForExtension());
-        telegramApi.sendMessageWithKeyboard(chatId, "Время вышло. Что делаем дальше?", EXTENSION_BUTTONS);
+        transition(chatId, session, context, current -> {
+            sessionRepository.saveSession(current.waitingForExtension());
+            telegramApi.sendMessageWithKeyboard(chatId, "Время вышло. Что делаем дальше?", EXTENSION_BUTTONS);
+        });
+    }
+
+    /**
+     * Runs a transition derived from {@code session}. If its write loses to a concurrent
+     * one, the session is read again: when the status is unchanged the transition is
+     * retried once on the fresh state, otherwise the update is stale (e.g. a double tap)
+     * and is dropped without further side effects.
+     */
+    private void transition(final long chatId, final SessionData session, final Context context,
+            final Transition transition) throws IOException, InterruptedException {
+        try {
+            transition.apply(session);
+        } catch (SessionConflictException e) {
+            final SessionData current = sessionRepository.getSession(chatId);
+            if (current.status() != session.status()) {
+                context.getLogger().log("Dropped stale update for chatId: " + chatId + ". Session moved from "
+                        + session.status() + " to " + current.status());
+                return;
+            }
+            context.getLogger().log("Session for chatId " + chatId + " changed concurrently, retrying once");
+            transition.apply(current);
+        }
+    }
+
+    /**
+     * Saves a WORKING state, then creates the timer it names. Writing first means that of
+     * two concurrent transitions only the winner reaches the scheduler. If the timer cannot
+     * be created, {@code previous} is restored so the chat is not left WORKING without one.
+     */
+    private void saveThenStartTimer(final SessionData next, final SessionData previous, final int minutes) {
+        final SessionData saved = sessionRepository.saveSession(next);
+        try {
+            timerService.createTimer(next.scheduleName(), next.chatId(), minutes);
+        } catch (RuntimeException e) {
+            try {
+                sessionRepository.saveSession(previous.atVersion(saved.version()));
+            } catch (RuntimeException restoreFailure) {
+                e.addSuppressed(restoreFailure);
+            }
+            throw e;
+        }
     }
 
     private void routeUpdate(final TelegramApi.Update update, final SessionData session, final Context context)
@@ -143,13 +311,14 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
 
         // Handle /start command - always allowed (resets flow)
         if (update.isStartCommand()) {
-            handleStartCommand(update.chatId(), session);
+            transition(update.chatId(), session, context, current -> handleStartCommand(update.chatId(), current));
             return;
         }
 
         // Handle /stop command - only during WORKING state
         if (update.isStopCommand()) {
-            handleStopCommand(update.chatId(), session, context);
+            transition(update.chatId(), session, context,
+                    current -> handleStopCommand(update.chatId(), current, context));
             return;
         }
 
@@ -157,8 +326,22 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
         if (update.isCallbackQuery()) {
             context.getLogger()
                     .log("Handling callback query: " + update.callbackData() + " for chatId: " + update.chatId());
-            telegramApi.answerCallbackQuery(update.callbackQueryId());
-            handleCallbackQuery(update.chatId(), update.callbackData(), session, context);
+            // The acknowledgement is independent of the transition and may overlap it
+            final SideEffects.Pending ack = sideEffects.start(
+                    () -> telegramApi.answerCallbackQuery(update.callbackQueryId()));
+            try {
+                transition(update.chatId(), session, context,
+                        current -> handleCallbackQuery(update.chatId(), update.callbackData(), current, context));
+            } catch (final Exception e) {
+                // Let the acknowledgement finish so the button stops spinning; the transition error wins
+                try {
+                    ack.await();
+                } catch (final Exception ackFailure) {
+                    e.addSuppressed(ackFailure);
+                }
+                throw e;
+            }
+            ack.await();
             return;
         }
 
@@ -166,24 +349,28 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
         if (update.isTextMessage() && !update.isCommand()) {
             context.getLogger().log("Handling text message: '" + update.text() + "' for chatId: " + update.chatId()
                     + " in state: " + session.status());
-            handleTextMessage(update.chatId(), update.text(), session, context);
+            transition(update.chatId(), session, context,
+                    current -> handleTextMessage(update.chatId(), update.text(), current, context));
         }
     }
 
     private void handleStartCommand(final long chatId, final SessionData session)
             throws IOException, InterruptedException {
         // Cancel any existing timer if there's an active session
-        if (session.status() == SessionState.WORKING && session.scheduleName() != null) {
-            timerService.cancelTimer(session.scheduleName());
-        }
-
-        // Transition to WAITING_FOR_DURATION
-        sessionRepository.saveSession(SessionData.idle(chatId).waitingForDuration());
-
-        telegramApi.sendMessageWithKeyboard(
-                chatId,
-                "Выберите продолжительность сессии (минуты):",
-                DURATION_BUTTONS);
+        final boolean hasActiveTimer = session.status() == SessionState.WORKING && session.scheduleName() != null;
+
+        // Transition to WAITING_FOR_DURATION; the old timer is only cancelled once that write has won
+        sessionRepository.saveSession(session.waitingForDuration());
+        sideEffects.runAll(
+                () -> {
+                    if (hasActiveTimer) {
+                        timerService.cancelTimer(session.scheduleName());
+                    }
+                },
+                () -> telegramApi.sendMessageWithKeyboard(
+                        chatId,
+                        "Выберите продолжительность сессии (минуты):",
+                        DURATION_BUTTONS));
     }
 
     private void handleStopCommand(final long chatId, final SessionData session, final Context context)
@@ -193,11 +380,12 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
             return;
         }
 
-        // Cancel the EventBridge schedule
-        timerService.cancelTimer(session.scheduleName());
-
+        // Persist the new state first; the EventBridge schedule is cancelled while replying
         sessionRepository.saveSession(session.waitingForOutcome());
-        telegramApi.sendMessage(chatId, "Сессия остановлена. Каков результат? (Что сделано + рефлексия)");
+        sideEffects.runAll(
+                () -> timerService.cancelTimer(session.scheduleName()),
+                () -> telegramApi.sendMessage(chatId,
+                        "Сессия остановлена. Каков результат? (Что сделано + рефлексия)"));
     }
 
     private void handleCallbackQuery(final long chatId, final String callbackData,
@@ -227,8 +415,8 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
             } else {
                 // Extend the session
                 final int extensionMinutes = Integer.parseInt(action);
-                final String newScheduleName = timerService.createTimer(chatId, extensionMinutes);
-                sessionRepository.saveSession(session.workingExtended(newScheduleName));
+                saveThenStartTimer(session.workingExtended(timerService.newScheduleName(chatId)), session,
+                        extensionMinutes);
                 telegramApi.sendMessage(chatId,
                         String.format("Таймер продлен на %d минут. Работаем.", extensionMinutes));
             }
@@ -271,9 +459,9 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
     private void startWorkingSession(final long chatId, final String productType, final SessionData session)
             throws IOException, InterruptedException {
         final Instant startTime = Instant.now();
-        final String scheduleName = timerService.createTimer(chatId, session.duration());
-
-        sessionRepository.saveSession(session.working(productType, startTime, scheduleName));
+        // Strictly ordered: WORKING is saved before the timer is created, and both before the prompt
+        saveThenStartTimer(session.working(productType, startTime, timerService.newScheduleName(chatId)), session,
+                session.duration());
         telegramApi.sendMessage(chatId, String.format("Таймер запущен на %d минут. Работаем.", session.duration()));
     }
 
@@ -295,18 +483,82 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
         context.getLogger()
                 .log("Attempting to ingest session. Task: " + payload.task());
 
+        final boolean completed;
         try {
-            ingestionService.ingestSession(payload);
-            context.getLogger().log("Session ingested successfully for chatId: " + chatId);
-
-            sessionRepository.deleteSession(chatId);
-            telegramApi.sendMessage(chatId, "Сессия сохранена. Отдыхаем.");
-        } catch (Exception e) {
+            // Ingestion record and state removal happen together (one transaction with DynamoDB)
+            completed = sessionCompletion.complete(session, payload);
+        } catch (RuntimeException e) {
             context.getLogger()
                     .log("FAILED to ingest session: " + e.getClass().getName() + ": " + e.getMessage());
             e.printStackTrace();
-            telegramApi.sendMessage(chatId, "Ошибка при сохранении сессии. Проверьте логи.");
+            if (spill(payload, chatId, context)) {
+                // Only a local copy exists until a drain writes it, so don't call it saved
+                telegramApi.sendMessage(chatId, "База недоступна: сессия поставлена в очередь и будет сохранена позже. "
+                        + "Отдыхаем.");
+            } else {
+                telegramApi.sendMessage(chatId, "Ошибка при сохранении сессии. Проверьте логи.");
+            }
+            return;
+        }
+
+        // Committed: a failing reply from here on must not spill the session a second time
+        sessionRepository.evict(chatId);
+        if (!completed) {
+            context.getLogger().log("Session already completed or changed for chatId: " + chatId);
+            return;
         }
+        context.getLogger().log("Session ingested successfully for chatId: " + chatId);
+        telegramApi.sendMessage(chatId, "Сессия сохранена. Отдыхаем.");
+    }
+
+    /**
+     * Keeps the session in the local spill queue and resets the chat, so a failed
+     * ingestion does not block the next session. Returns false if nothing was spilled.
+     */
+    private boolean spill(final IngestionPayload payload, final long chatId, final Context context) {
+        if (spillQueue == null) {
+            return false;
+        }
+        try {
+            spillQueue.append(payload);
+        } catch (IOException e) {
+            context.getLogger().log("FAILED to spill session: " + e.getMessage());
+            return false;
+        }
+        context.getLogger().log("Session spilled for later ingestion for chatId: " + chatId);
+        try {
+            sessionRepository.deleteSession(chatId);
+        } catch (RuntimeException e) {
+            context.getLogger().log("FAILED to reset spilled session: " + e.getMessage());
+        } finally {
+            sessionRepository.evict(chatId);
+        }
+        return true;
+    }
+
+    /**
+     * Re-ingests previously spilled sessions in the background, if there are any.
+     */
+    private void drainSpilledSessions() {
+        if (spillQueue != null) {
+            spillQueue.drainInBackground(ingestionService);
+        }
+    }
+
+    private static String header(final Map<String, Object> input, final String name) {
+        if (input.get("headers") instanceof Map<?, ?> headers) {
+            // API Gateway HTTP APIs lower-case header names, REST APIs keep them as sent
+            for (final Map.Entry<?, ?> header : headers.entrySet()) {
+                if (name.equalsIgnoreCase(String.valueOf(header.getKey()))) {
+                    return String.valueOf(header.getValue());
+                }
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Object> unauthorizedResponse() {
+        return Map.of("statusCode", 401);
     }
 
     private Map<String, Object> successResponse() {
@@ -314,4 +566,14 @@ public class BotHandler implements RequestHandler<Map<String, Object>, Map<Strin
                 "statusCode", 200,
                 "body", "{\"ok\":true}");
     }
+
+    private Map<String, Object> webhookResponse(final byte[] reply) {
+        if (reply == null) {
+            return successResponse();
+        }
+        return Map.of(
+                "statusCode", 200,
+                "headers", Map.of("Content-Type", "application/json"),
+                "body", new String(reply, StandardCharsets.UTF_8));
+    }
 }
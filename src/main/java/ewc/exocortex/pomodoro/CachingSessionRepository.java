@@ -0,0 +1,141 @@
+package ewc.exocortex.pomodoro;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Write-through SessionRepository decorator that keeps sessions in the warm container.
+ * <p>
+ * Every saved session is remembered together with the version it was persisted
+ * under. A later read is answered from memory: within the trust window without
+ * any call, after it once {@link SessionRepository#getVersion(long) the version
+ * check} confirms that no other container has written the item since. A missing
+ * entry or a changed version falls back to a full read.
+ * <p>
+ * Session items are far below one read unit, so a version check against DynamoDB
+ * costs as much as the full read it replaces. Only reads inside the trust window
+ * are saved, and serving them is safe only while this process is the single
+ * writer of its chats (e.g. the polling server, or one pinned container).
+ */
+public final class CachingSessionRepository implements SessionRepository {
+
+    static final int MAX_ENTRIES = 1024;
+
+    private final SessionRepository delegate;
+    private final long trustWindowNanos;
+    private final LongSupplier nanoClock;
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * @param delegate    the backing repository
+     * @param trustWindow how long a cached entry is served without a version check;
+     *                    {@link Duration#ZERO} checks on every read
+     */
+    public CachingSessionRepository(final SessionRepository delegate, final Duration trustWindow) {
+        this(delegate, trustWindow, System::nanoTime);
+    }
+
+    /**
+     * Constructor for testing with a controllable clock.
+     */
+    CachingSessionRepository(final SessionRepository delegate, final Duration trustWindow,
+            final LongSupplier nanoClock) {
+        this.delegate = delegate;
+        this.trustWindowNanos = trustWindow.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Wraps the repository when SESSION_CACHE_TRUST_MS is positive. Set it only where
+     * this process is the single writer; without a trust window the cache saves nothing,
+     * so the repository is returned unwrapped.
+     */
+    public static SessionRepository fromEnvironment(final SessionRepository delegate) {
+        final String trustMs = System.getenv("SESSION_CACHE_TRUST_MS");
+        if (trustMs == null || trustMs.isBlank()) {
+            return delegate;
+        }
+        final Duration trustWindow = Duration.ofMillis(Long.parseLong(trustMs.trim()));
+        return trustWindow.isZero() || trustWindow.isNegative()
+                ? delegate
+                : new CachingSessionRepository(delegate, trustWindow);
+    }
+
+    @Override
+    public SessionData getSession(final long chatId) {
+        final Entry cached = cached(chatId);
+        if (cached != null) {
+            final long now = nanoClock.getAsLong();
+            if (now - cached.verifiedAt < trustWindowNanos) {
+                return cached.session;
+            }
+            if (delegate.getVersion(chatId) == cached.session.version()) {
+                remember(cached.session, now);
+                return cached.session;
+            }
+        }
+
+        final SessionData session = delegate.getSession(chatId);
+        remember(session, nanoClock.getAsLong());
+        return session;
+    }
+
+    @Override
+    public SessionData saveSession(final SessionData session) {
+        final SessionData persisted;
+        try {
+            persisted = delegate.saveSession(session);
+        } catch (SessionConflictException e) {
+            // The cached copy is what the losing write was derived from
+            synchronized (entries) {
+                entries.remove(session.chatId());
+            }
+            throw e;
+        }
+        remember(persisted, nanoClock.getAsLong());
+        return persisted;
+    }
+
+    @Override
+    public void deleteSession(final long chatId) {
+        delegate.deleteSession(chatId);
+        synchronized (entries) {
+            entries.remove(chatId);
+        }
+    }
+
+    @Override
+    public void evict(final long chatId) {
+        synchronized (entries) {
+            entries.remove(chatId);
+        }
+        delegate.evict(chatId);
+    }
+
+    @Override
+    public long getVersion(final long chatId) {
+        return delegate.getVersion(chatId);
+    }
+
+    private Entry cached(final long chatId) {
+        synchronized (entries) {
+            return entries.get(chatId);
+        }
+    }
+
+    private void remember(final SessionData session, final long verifiedAt) {
+        synchronized (entries) {
+            entries.put(session.chatId(), new Entry(session, verifiedAt));
+        }
+    }
+
+    private record Entry(SessionData session, long verifiedAt) {
+    }
+}
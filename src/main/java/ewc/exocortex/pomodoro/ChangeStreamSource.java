@@ -0,0 +1,35 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered source of item-level changes of the ingestion table (e.g. a DynamoDB stream shard).
+ */
+public interface ChangeStreamSource {
+
+    /**
+     * One change record.
+     *
+     * @param sequenceNumber position in the stream; increases with every change
+     * @param eventName      INSERT, MODIFY or REMOVE
+     * @param newImage       the item after the change; empty for REMOVE
+     */
+    record Change(String sequenceNumber, String eventName, Map<String, AttributeValue> newImage) {
+
+        public boolean isInsert() {
+            return "INSERT".equals(eventName);
+        }
+    }
+
+    /**
+     * Reads changes after the given position, in stream order.
+     *
+     * @param afterSequenceNumber last position already processed, or null to read from the start
+     * @param limit               maximum number of changes to return
+     * @return the next changes; empty if there are none yet
+     */
+    List<Change> read(String afterSequenceNumber, int limit);
+}
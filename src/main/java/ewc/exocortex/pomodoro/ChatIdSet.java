@@ -0,0 +1,85 @@
+package ewc.exocortex.pomodoro;
+
+/**
+ * Immutable set of chat IDs stored as primitive longs.
+ * <p>
+ * Open addressing with linear probing over a power-of-two table that is at most
+ * half full, so a lookup is a multiply, a mask and a short scan of one array:
+ * no boxing and no allocation. Slots holding 0 are empty; Telegram never issues
+ * chat ID 0, but it is still tracked separately so the set stays exact.
+ */
+public final class ChatIdSet {
+
+    private static final long EMPTY = 0L;
+    private static final ChatIdSet NONE = new ChatIdSet(new long[2], false, 0);
+
+    private final long[] slots;
+    private final int mask;
+    private final boolean containsEmpty;
+    private final int size;
+
+    private ChatIdSet(final long[] slots, final boolean containsEmpty, final int size) {
+        this.slots = slots;
+        this.mask = slots.length - 1;
+        this.containsEmpty = containsEmpty;
+        this.size = size;
+    }
+
+    /**
+     * Returns the set of the given IDs; duplicates are ignored.
+     */
+    public static ChatIdSet of(final long... chatIds) {
+        if (chatIds.length == 0) {
+            return NONE;
+        }
+        final long[] slots = new long[Math.max(2, Integer.highestOneBit(chatIds.length) << 2)];
+        final int mask = slots.length - 1;
+        boolean containsEmpty = false;
+        int size = 0;
+        for (final long chatId : chatIds) {
+            if (chatId == EMPTY) {
+                if (!containsEmpty) {
+                    containsEmpty = true;
+                    size++;
+                }
+                continue;
+            }
+            int i = slot(chatId, mask);
+            while (slots[i] != EMPTY && slots[i] != chatId) {
+                i = (i + 1) & mask;
+            }
+            if (slots[i] == EMPTY) {
+                slots[i] = chatId;
+                size++;
+            }
+        }
+        return new ChatIdSet(slots, containsEmpty, size);
+    }
+
+    public boolean contains(final long chatId) {
+        if (chatId == EMPTY) {
+            return containsEmpty;
+        }
+        int i = slot(chatId, mask);
+        while (true) {
+            final long slot = slots[i];
+            if (slot == chatId) {
+                return true;
+            }
+            if (slot == EMPTY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static int slot(final long chatId, final int mask) {
+        // Fibonacci hashing: the high bits of the product mix every bit of the ID
+        final long hash = chatId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
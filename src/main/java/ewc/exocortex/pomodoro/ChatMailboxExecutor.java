@@ -0,0 +1,93 @@
+package ewc.exocortex.pomodoro;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs work one task at a time per chat, and different chats in parallel.
+ * <p>
+ * Each chat with pending work has a mailbox: a FIFO queue drained by a single
+ * virtual thread. Enqueueing and the drainer's "queue is empty, retire" decision
+ * both happen inside {@link ConcurrentHashMap#compute}, which locks only that
+ * chat's hash bin, so a task can never be left in a mailbox nobody drains and
+ * two drainers never run for one chat. Idle chats keep no mailbox and no thread.
+ */
+public final class ChatMailboxExecutor implements AutoCloseable {
+
+    private static final class Mailbox {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+    }
+
+    private final ConcurrentHashMap<Long, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ThreadFactory drainers = Thread.ofVirtual().name("chat-", 0).factory();
+    private volatile boolean closed;
+
+    /**
+     * Queues the task behind the chat's earlier tasks.
+     *
+     * @return a future completed when the task has run, exceptionally if it threw
+     * @throws RejectedExecutionException if the executor is closed
+     */
+    public CompletableFuture<Void> submit(final long chatId, final Runnable task) {
+        if (closed) {
+            throw new RejectedExecutionException("Mailbox executor is closed");
+        }
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final Runnable wrapped = () -> {
+            try {
+                task.run();
+                done.complete(null);
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
+            }
+        };
+
+        final boolean[] start = new boolean[1];
+        mailboxes.compute(chatId, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+                start[0] = true;
+            }
+            mailbox.tasks.add(wrapped);
+            return mailbox;
+        });
+        if (start[0]) {
+            drainers.newThread(() -> drain(chatId)).start();
+        }
+        return done;
+    }
+
+    /**
+     * Returns the number of chats with queued or running work.
+     */
+    public int activeChats() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Stops accepting tasks; queued tasks still run.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private void drain(final long chatId) {
+        while (true) {
+            final Runnable[] next = new Runnable[1];
+            // Retire the mailbox atomically with finding it empty
+            mailboxes.computeIfPresent(chatId, (id, mailbox) -> {
+                next[0] = mailbox.tasks.poll();
+                return next[0] == null ? null : mailbox;
+            });
+            if (next[0] == null) {
+                return;
+            }
+            next[0].run();
+        }
+    }
+}
@@ -1,54 +1,90 @@
 package ewc.exocortex.pomodoro;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * Service for ingesting completed session data into DynamoDB.
  * Acts as a buffer/queue for the MCP server.
+ * <p>
+ * Record IDs are time-ordered ({@link TimeOrderedIds}) and every record carries the
+ * fixed {@value #FEED} partition value, so the {@value #FEED_INDEX} index lists
+ * records in completion order (see {@link IngestionReader}).
  */
 public class DynamoIngestionService {
 
-    private static final String TABLE_NAME = "PomodoroIngestion";
-    private static final String PK = "id";
-    private static final ObjectMapper MAPPER = new ObjectMapper()
+    static final String TABLE_NAME = "PomodoroIngestion";
+    static final String PK = "id";
+    static final String PAYLOAD = "payload";
+    static final String FEED_ATTRIBUTE = "feed";
+    static final String FEED = "sessions";
+    static final String FEED_INDEX = "ByFeed";
+    private static final TimeOrderedIds IDS = new TimeOrderedIds();
+    static final ObjectMapper MAPPER = new ObjectMapper()
             .registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule())
             .configure(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
 
     private final DynamoDbClient dynamoDb;
+    private final IngestionPayloadCodec payloadCodec;
 
     public DynamoIngestionService(final DynamoDbClient dynamoDb) {
+        this(dynamoDb, IngestionPayloadCodec.plain());
+    }
+
+    public DynamoIngestionService(final DynamoDbClient dynamoDb, final IngestionPayloadCodec payloadCodec) {
         this.dynamoDb = dynamoDb;
+        this.payloadCodec = payloadCodec;
     }
 
+    /**
+     * Creates the service using default DynamoDB client.
+     * INGESTION_COMPRESS_THRESHOLD enables compression of larger payloads.
+     */
     public static DynamoIngestionService create() {
-        return new DynamoIngestionService(DynamoDbClient.create());
+        return new DynamoIngestionService(DynamoDbClient.create(), IngestionPayloadCodec.fromEnvironment());
     }
 
     public void ingestSession(final IngestionPayload payload) {
-        final Map<String, AttributeValue> item = new HashMap<>();
-
-        // 1. Generate unique ID
-        item.put(PK, AttributeValue.builder().s(UUID.randomUUID().toString()).build());
-
-        // 2. Serialize full session payload to JSON
-        try {
-            String jsonEntry = MAPPER.writeValueAsString(payload);
-            item.put("payload", AttributeValue.builder().s(jsonEntry).build());
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize session data", e);
-        }
-
         dynamoDb.putItem(PutItemRequest.builder()
                 .tableName(TABLE_NAME)
-                .item(item)
+                .item(toItem(payload))
                 .build());
     }
+
+    /**
+     * Ingests several sessions. This implementation writes them one by one.
+     */
+    public void ingestAll(final Collection<IngestionPayload> payloads) {
+        for (final IngestionPayload payload : payloads) {
+            ingestSession(payload);
+        }
+    }
+
+    /**
+     * Writes out anything still buffered. This implementation does not buffer.
+     */
+    public void flush() {
+        // Nothing buffered
+    }
+
+    /**
+     * Builds the ingestion item for a payload.
+     */
+    protected Map<String, AttributeValue> toItem(final IngestionPayload payload) {
+        final Map<String, AttributeValue> item = new HashMap<>();
+
+        // 1. Generate unique, time-ordered ID
+        item.put(PK, AttributeValue.builder().s(IDS.next()).build());
+        item.put(FEED_ATTRIBUTE, AttributeValue.builder().s(FEED).build());
+
+        // 2. Serialize full session payload to JSON (compressed if large)
+        item.put(PAYLOAD, payloadCodec.encode(payload));
+        return item;
+    }
 }
@@ -0,0 +1,97 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.Delete;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Completes a session in one TransactWriteItems call.
+ * <p>
+ * The state row is deleted only if it still has the status and version the session
+ * was read with, and that condition is what prevents a double ingestion: once one
+ * completion has committed, any later attempt for the same session state (e.g. a
+ * redelivered update, whose record gets a new ID) is cancelled. The client request
+ * token is derived from the record ID, so only the SDK's own retries of one call
+ * share a token and replay idempotently.
+ */
+public final class DynamoSessionCompletion implements SessionCompletion {
+
+    private final DynamoDbClient dynamoDb;
+    private final DynamoIngestionService ingestionService;
+
+    public DynamoSessionCompletion(final DynamoDbClient dynamoDb, final DynamoIngestionService ingestionService) {
+        this.dynamoDb = dynamoDb;
+        this.ingestionService = ingestionService;
+    }
+
+    /**
+     * Creates the completion using default DynamoDB client.
+     */
+    public static DynamoSessionCompletion create(final DynamoIngestionService ingestionService) {
+        return new DynamoSessionCompletion(DynamoDbClient.create(), ingestionService);
+    }
+
+    @Override
+    public boolean complete(final SessionData session, final IngestionPayload payload) {
+        final Map<String, AttributeValue> record = ingestionService.toItem(payload);
+
+        final Map<String, String> names = new HashMap<>();
+        names.put("#status", "status");
+        names.put("#version", DynamoSessionRepository.VERSION);
+        final Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":status", AttributeValue.builder().s(session.status().name()).build());
+        final String versionCondition;
+        if (session.version() != 0) {
+            values.put(":version", AttributeValue.builder().n(String.valueOf(session.version())).build());
+            versionCondition = "#version = :version";
+        } else {
+            // Item written before versioning
+            versionCondition = "attribute_not_exists(#version)";
+        }
+
+        try {
+            dynamoDb.transactWriteItems(TransactWriteItemsRequest.builder()
+                    .clientRequestToken(completionId(record))
+                    .transactItems(
+                            TransactWriteItem.builder().put(Put.builder()
+                                    .tableName(DynamoIngestionService.TABLE_NAME)
+                                    .item(record)
+                                    .build()).build(),
+                            TransactWriteItem.builder().delete(Delete.builder()
+                                    .tableName(DynamoSessionRepository.TABLE_NAME)
+                                    .key(Map.of(DynamoSessionRepository.PK,
+                                            AttributeValue.builder().n(String.valueOf(session.chatId())).build()))
+                                    .conditionExpression("#status = :status AND " + versionCondition)
+                                    .expressionAttributeNames(names)
+                                    .expressionAttributeValues(values)
+                                    .build()).build())
+                    .build());
+            return true;
+        } catch (TransactionCanceledException e) {
+            if (e.hasCancellationReasons() && e.cancellationReasons().stream()
+                    .map(CancellationReason::code)
+                    .anyMatch("ConditionalCheckFailed"::equals)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Derives the request token from the record ID, which is unique per completion attempt.
+     */
+    static String completionId(final Map<String, AttributeValue> record) {
+        final String seed = "completion:" + record.get(DynamoIngestionService.PK).s();
+        return UUID.nameUUIDFromBytes(seed.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
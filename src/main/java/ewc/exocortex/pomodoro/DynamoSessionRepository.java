@@ -3,29 +3,80 @@ package ewc.exocortex.pomodoro;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
-import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * DynamoDB implementation of SessionRepository.
+ * <p>
+ * In {@link WriteMode#DELTA delta mode} the repository remembers the last item it
+ * read or wrote per chat. Saving a state derived from that item sends only the
+ * attributes that changed as an UpdateItem; anything else is written in full with PutItem.
+ * <p>
+ * Every write is a compare-and-set on the version the state was derived from
+ * ({@code attribute_not_exists} for a state derived from no item). A write that
+ * lost to a concurrent writer is rejected with {@link SessionConflictException}
+ * rather than overwriting the newer state.
+ * <p>
+ * New items are written with the configured {@link SessionCodec}. Reads accept both
+ * layouts, so switching codecs needs no migration: an item moves to the new layout
+ * on its next write.
  */
 public final class DynamoSessionRepository implements SessionRepository {
 
-    private static final String TABLE_NAME = "PomodoroBotState";
-    private static final String PK = "chatId";
+    static final String TABLE_NAME = "PomodoroBotState";
+    static final String PK = "chatId";
+    static final String VERSION = "version";
+    private static final int MAX_KNOWN_ITEMS = 1024;
+    private static final SessionCodec ATTRIBUTE_CODEC = new AttributeSessionCodec();
+    private static final SessionCodec BINARY_CODEC = new BinarySessionCodec();
+
+    /**
+     * How sessions are written.
+     */
+    public enum WriteMode {
+        /** PutItem with every non-null attribute. */
+        FULL,
+        /** UpdateItem with only the changed attributes when the previous item is known. */
+        DELTA
+    }
 
     private final DynamoDbClient dynamoDb;
+    private final WriteMode writeMode;
+    private final SessionCodec codec;
+    private final Map<Long, Map<String, AttributeValue>> knownItems = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Map<String, AttributeValue>> eldest) {
+            return size() > MAX_KNOWN_ITEMS;
+        }
+    };
 
     public DynamoSessionRepository(final DynamoDbClient dynamoDb) {
+        this(dynamoDb, WriteMode.FULL);
+    }
+
+    public DynamoSessionRepository(final DynamoDbClient dynamoDb, final WriteMode writeMode) {
+        this(dynamoDb, writeMode, ATTRIBUTE_CODEC);
+    }
+
+    public DynamoSessionRepository(final DynamoDbClient dynamoDb, final WriteMode writeMode,
+            final SessionCodec codec) {
         this.dynamoDb = dynamoDb;
+        this.writeMode = writeMode;
+        this.codec = codec;
     }
 
     /**
      * Creates repository using default DynamoDB client.
+     * SESSION_WRITE_MODE=DELTA enables delta writes; SESSION_CODEC=BINARY writes the packed layout.
      */
     public static DynamoSessionRepository create() {
-        return new DynamoSessionRepository(DynamoDbClient.create());
+        final String mode = System.getenv("SESSION_WRITE_MODE");
+        return new DynamoSessionRepository(DynamoDbClient.create(),
+                mode == null || mode.isBlank() ? WriteMode.FULL : WriteMode.valueOf(mode.trim().toUpperCase(Locale.ROOT)),
+                "BINARY".equalsIgnoreCase(System.getenv("SESSION_CODEC")) ? BINARY_CODEC : ATTRIBUTE_CODEC);
     }
 
     @Override
@@ -40,39 +91,47 @@ public final class DynamoSessionRepository implements SessionRepository {
         }
 
         final Map<String, AttributeValue> item = response.item();
-        return new SessionData(
-                chatId,
-                SessionState.valueOf(getStringOrNull(item, "status")),
-                getIntegerOrNull(item, "duration"),
-                getStringOrNull(item, "scheduleName"),
-                getStringOrNull(item, "task"),
-                getStringOrNull(item, "role"),
-                getStringOrNull(item, "productType"),
-                getInstantOrNull(item, "startTime"),
-                getStringOrNull(item, "outcome"));
+        final SessionCodec itemCodec = item.containsKey(BinarySessionCodec.DATA) ? BINARY_CODEC : ATTRIBUTE_CODEC;
+        final SessionData session = itemCodec.decode(chatId, getVersion(item), item);
+        remember(chatId, item);
+        return session;
     }
 
+    /**
+     * Reads only the version attribute (strongly consistent).
+     */
     @Override
-    public void saveSession(final SessionData session) {
-        final Map<String, AttributeValue> item = new HashMap<>();
-        item.put(PK, AttributeValue.builder().n(String.valueOf(session.chatId())).build());
-        item.put("status", AttributeValue.builder().s(session.status().name()).build());
-
-        putIfNotNull(item, "duration", session.duration() != null ? String.valueOf(session.duration()) : null, true);
-        putIfNotNull(item, "scheduleName", session.scheduleName(), false);
-
-        putIfNotNull(item, "task", session.task(), false);
-        putIfNotNull(item, "role", session.role(), false);
-        putIfNotNull(item, "productType", session.productType(), false);
-
-        putIfNotNull(item, "startTime", session.startTime() != null ? session.startTime().toString() : null, false);
-
-        putIfNotNull(item, "outcome", session.outcome(), false);
-
-        dynamoDb.putItem(PutItemRequest.builder()
+    public long getVersion(final long chatId) {
+        final GetItemResponse response = dynamoDb.getItem(GetItemRequest.builder()
                 .tableName(TABLE_NAME)
-                .item(item)
+                .key(Map.of(PK, AttributeValue.builder().n(String.valueOf(chatId)).build()))
+                .projectionExpression("#v")
+                .expressionAttributeNames(Map.of("#v", VERSION))
+                .consistentRead(true)
                 .build());
+
+        return response.hasItem() ? getVersion(response.item()) : 0L;
+    }
+
+    @Override
+    public SessionData saveSession(final SessionData sessionData) {
+        final SessionData session = sessionData.nextVersion();
+        final Map<String, AttributeValue> item = toItem(session);
+        final long expectedVersion = sessionData.version();
+
+        final Map<String, AttributeValue> previous = known(session.chatId());
+        try {
+            if (previous != null && expectedVersion != 0 && getVersion(previous) == expectedVersion) {
+                updateChanged(previous, item, expectedVersion);
+            } else {
+                putItem(item, expectedVersion);
+            }
+        } catch (ConditionalCheckFailedException e) {
+            evict(session.chatId());
+            throw new SessionConflictException(session.chatId(), expectedVersion);
+        }
+        remember(session.chatId(), item);
+        return session;
     }
 
     @Override
@@ -81,31 +140,101 @@ public final class DynamoSessionRepository implements SessionRepository {
                 .tableName(TABLE_NAME)
                 .key(Map.of(PK, AttributeValue.builder().n(String.valueOf(chatId)).build()))
                 .build());
+        evict(chatId);
     }
 
-    private void putIfNotNull(final Map<String, AttributeValue> item, final String key, final String value,
-            final boolean isNumber) {
-        if (value != null) {
-            if (isNumber) {
-                item.put(key, AttributeValue.builder().n(value).build());
-            } else {
-                item.put(key, AttributeValue.builder().s(value).build());
+    @Override
+    public void evict(final long chatId) {
+        if (writeMode == WriteMode.DELTA) {
+            synchronized (knownItems) {
+                knownItems.remove(chatId);
             }
         }
     }
 
-    private String getStringOrNull(final Map<String, AttributeValue> item, final String key) {
-        final AttributeValue value = item.get(key);
-        return value != null && value.s() != null ? value.s() : null;
+    /**
+     * Sets the attributes that differ from the previous item and removes the ones that are gone.
+     */
+    private void updateChanged(final Map<String, AttributeValue> previous, final Map<String, AttributeValue> item,
+            final long expectedVersion) {
+        final StringBuilder set = new StringBuilder();
+        final StringBuilder remove = new StringBuilder();
+        final Map<String, String> names = new HashMap<>();
+        final Map<String, AttributeValue> values = new HashMap<>();
+
+        for (final Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            final String name = attribute.getKey();
+            if (!PK.equals(name) && !attribute.getValue().equals(previous.get(name))) {
+                set.append(set.isEmpty() ? "SET " : ", ").append('#').append(name).append(" = :").append(name);
+                names.put("#" + name, name);
+                values.put(":" + name, attribute.getValue());
+            }
+        }
+        for (final String name : previous.keySet()) {
+            if (!item.containsKey(name)) {
+                remove.append(remove.isEmpty() ? " REMOVE " : ", ").append('#').append(name);
+                names.put("#" + name, name);
+            }
+        }
+        names.put("#" + VERSION, VERSION);
+        values.put(":expectedVersion", AttributeValue.builder().n(String.valueOf(expectedVersion)).build());
+
+        dynamoDb.updateItem(UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(Map.of(PK, item.get(PK)))
+                .updateExpression(set.append(remove).toString())
+                .conditionExpression("#" + VERSION + " = :expectedVersion")
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .build());
     }
 
-    private Integer getIntegerOrNull(final Map<String, AttributeValue> item, final String key) {
-        final AttributeValue value = item.get(key);
-        return value != null && value.n() != null ? Integer.parseInt(value.n()) : null;
+    /**
+     * Writes the whole item, provided the stored version is still the expected one.
+     */
+    private void putItem(final Map<String, AttributeValue> item, final long expectedVersion) {
+        final PutItemRequest.Builder request = PutItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .item(item)
+                .expressionAttributeNames(Map.of("#" + VERSION, VERSION));
+        if (expectedVersion != 0) {
+            request.conditionExpression("#" + VERSION + " = :expectedVersion")
+                    .expressionAttributeValues(Map.of(":expectedVersion",
+                            AttributeValue.builder().n(String.valueOf(expectedVersion)).build()));
+        } else {
+            // No item yet, or one written before versioning
+            request.conditionExpression("attribute_not_exists(#" + VERSION + ")");
+        }
+        dynamoDb.putItem(request.build());
+    }
+
+    private Map<String, AttributeValue> toItem(final SessionData session) {
+        final Map<String, AttributeValue> item = codec.encode(session);
+        item.put(PK, AttributeValue.builder().n(String.valueOf(session.chatId())).build());
+        item.put(VERSION, AttributeValue.builder().n(String.valueOf(session.version())).build());
+        return item;
+    }
+
+    private Map<String, AttributeValue> known(final long chatId) {
+        if (writeMode != WriteMode.DELTA) {
+            return null;
+        }
+        synchronized (knownItems) {
+            return knownItems.get(chatId);
+        }
+    }
+
+    private void remember(final long chatId, final Map<String, AttributeValue> item) {
+        if (writeMode == WriteMode.DELTA) {
+            synchronized (knownItems) {
+                knownItems.put(chatId, item);
+            }
+        }
     }
 
-    private Instant getInstantOrNull(final Map<String, AttributeValue> item, final String key) {
-        final AttributeValue value = item.get(key);
-        return value != null && value.s() != null ? Instant.parse(value.s()) : null;
+    private long getVersion(final Map<String, AttributeValue> item) {
+        // Items written before versioning have no version attribute
+        final AttributeValue value = item.get(VERSION);
+        return value != null && value.n() != null ? Long.parseLong(value.n()) : 0L;
     }
 }
@@ -0,0 +1,52 @@
+package ewc.exocortex.pomodoro;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Sink that POSTs each record as JSON to an HTTP endpoint (e.g. the vault's import hook).
+ * <p>
+ * The record ID is also sent as the {@code Idempotency-Key} header, so the
+ * receiver can drop re-deliveries. Any non-2xx status is a failed delivery.
+ */
+public final class HttpIngestionSink implements IngestionSink {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient httpClient;
+    private final URI endpoint;
+
+    public HttpIngestionSink(final HttpClient httpClient, final URI endpoint) {
+        this.httpClient = httpClient;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Creates a sink for the INGESTION_SINK_URL environment variable.
+     */
+    public static HttpIngestionSink fromEnvironment() {
+        final String url = System.getenv("INGESTION_SINK_URL");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("INGESTION_SINK_URL environment variable is required");
+        }
+        return new HttpIngestionSink(TelegramTransport.newHttpClient(Duration.ofSeconds(5)), URI.create(url.trim()));
+    }
+
+    @Override
+    public void accept(final IngestionRecord record) throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", record.id())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(DynamoIngestionService.MAPPER.writeValueAsBytes(record)))
+                .build();
+        final HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Ingestion sink returned HTTP " + response.statusCode() + " for " + record.id());
+        }
+    }
+}
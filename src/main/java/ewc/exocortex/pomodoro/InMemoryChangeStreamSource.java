@@ -0,0 +1,36 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory implementation of ChangeStreamSource for testing and local runs.
+ */
+public class InMemoryChangeStreamSource implements ChangeStreamSource {
+
+    private final List<Change> changes = new ArrayList<>();
+
+    /**
+     * Appends an INSERT change for the item.
+     */
+    public synchronized void insert(final Map<String, AttributeValue> item) {
+        append("INSERT", item);
+    }
+
+    /**
+     * Appends a change with the next sequence number.
+     */
+    public synchronized void append(final String eventName, final Map<String, AttributeValue> newImage) {
+        // Fixed-width numbers keep string order equal to stream order
+        changes.add(new Change(String.format("%020d", changes.size() + 1), eventName, newImage));
+    }
+
+    @Override
+    public synchronized List<Change> read(final String afterSequenceNumber, final int limit) {
+        final int from = afterSequenceNumber == null ? 0 : Integer.parseInt(afterSequenceNumber);
+        return List.copyOf(changes.subList(Math.min(from, changes.size()), Math.min(from + limit, changes.size())));
+    }
+}
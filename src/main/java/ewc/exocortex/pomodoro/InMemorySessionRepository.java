@@ -16,8 +16,14 @@ public class InMemorySessionRepository implements SessionRepository {
     }
 
     @Override
-    public void saveSession(final SessionData session) {
-        sessions.put(session.chatId(), session);
+    public SessionData saveSession(final SessionData session) {
+        final SessionData stored = sessions.get(session.chatId());
+        if ((stored != null ? stored.version() : 0L) != session.version()) {
+            throw new SessionConflictException(session.chatId(), session.version());
+        }
+        final SessionData persisted = session.nextVersion();
+        sessions.put(persisted.chatId(), persisted);
+        return persisted;
     }
 
     @Override
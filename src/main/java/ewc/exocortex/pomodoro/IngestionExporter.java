@@ -0,0 +1,227 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exports the ingestion table to JSON Lines with a parallel scan.
+ * <p>
+ * The table is split into {@code totalSegments} scan segments, processed by a
+ * fixed pool of worker threads. Each segment is written to its own
+ * {@code segment-N.jsonl} file, one {@link IngestionPayload} per line (the format
+ * {@link IngestionImport} reads). A worker holds at most one scan page in memory
+ * and fetches the next page only after the previous one is on disk, so a slow
+ * disk slows the scan instead of filling the heap.
+ * <p>
+ * After every page the worker records the last scanned key and the file length in
+ * {@code segment-N.checkpoint}. A restarted export skips finished segments,
+ * truncates each unfinished file to its checkpoint and resumes the scan there.
+ */
+public final class IngestionExporter {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    /**
+     * Outcome of an export run.
+     *
+     * @param records  records written during this run
+     * @param segments segments finished during this run
+     */
+    public record Summary(long records, int segments) {
+    }
+
+    private final DynamoDbClient dynamoDb;
+    private final Path outputDir;
+    private final int totalSegments;
+    private final int workers;
+    private final int pageSize;
+
+    public IngestionExporter(final DynamoDbClient dynamoDb, final Path outputDir, final int totalSegments,
+            final int workers, final int pageSize) {
+        if (totalSegments < 1 || workers < 1 || pageSize < 1) {
+            throw new IllegalArgumentException("segments, workers and page size must be positive");
+        }
+        this.dynamoDb = dynamoDb;
+        this.outputDir = outputDir;
+        this.totalSegments = totalSegments;
+        this.workers = workers;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Usage: {@code IngestionExporter <outputDir> [segments] [workers]}.
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: IngestionExporter <outputDir> [segments] [workers]");
+            System.exit(2);
+        }
+        final int segments = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final int workers = args.length > 2 ? Integer.parseInt(args[2]) : segments;
+
+        try (DynamoDbClient dynamoDb = DynamoDbClient.create()) {
+            final Summary summary = new IngestionExporter(dynamoDb, Path.of(args[0]), segments, workers, 500).export();
+            System.out.println("Exported " + summary.records() + " records, " + summary.segments() + " segments");
+        }
+    }
+
+    /**
+     * Runs (or resumes) the export.
+     *
+     * @throws IOException if any segment failed; finished segments stay finished
+     */
+    public Summary export() throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+
+        final LongAdder records = new LongAdder();
+        final ExecutorService pool = Executors.newFixedThreadPool(workers);
+        final List<Future<Boolean>> results = new ArrayList<>(totalSegments);
+        try {
+            for (int segment = 0; segment < totalSegments; segment++) {
+                final int current = segment;
+                results.add(pool.submit(() -> exportSegment(current, records)));
+            }
+
+            int finished = 0;
+            IOException failure = null;
+            for (final Future<Boolean> result : results) {
+                try {
+                    if (result.get()) {
+                        finished++;
+                    }
+                } catch (ExecutionException e) {
+                    final IOException segmentFailure = e.getCause() instanceof IOException io
+                            ? io
+                            : new IOException("Segment export failed", e.getCause());
+                    if (failure == null) {
+                        failure = segmentFailure;
+                    } else {
+                        failure.addSuppressed(segmentFailure);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return new Summary(records.sum(), finished);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Exports one segment from its checkpoint.
+     *
+     * @return true if the segment was finished by this call, false if it was already done
+     */
+    private boolean exportSegment(final int segment, final LongAdder records) throws IOException {
+        final Path dataFile = outputDir.resolve("segment-" + segment + ".jsonl");
+        final Path checkpointFile = outputDir.resolve("segment-" + segment + ".checkpoint");
+        final Checkpoint checkpoint = Checkpoint.read(checkpointFile);
+        if (checkpoint.done) {
+            return false;
+        }
+
+        try (FileChannel out = FileChannel.open(dataFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Drop anything written after the last checkpoint
+            out.truncate(checkpoint.offset);
+            out.position(checkpoint.offset);
+
+            String lastKey = checkpoint.lastKey;
+            final ByteArrayOutputStream page = new ByteArrayOutputStream(pageSize * 256);
+            do {
+                final ScanRequest.Builder scan = ScanRequest.builder()
+                        .tableName(DynamoIngestionService.TABLE_NAME)
+                        .segment(segment)
+                        .totalSegments(totalSegments)
+                        .limit(pageSize);
+                if (lastKey != null) {
+                    scan.exclusiveStartKey(Map.of(DynamoIngestionService.PK,
+                            AttributeValue.builder().s(lastKey).build()));
+                }
+                final ScanResponse response = dynamoDb.scan(scan.build());
+
+                page.reset();
+                for (final Map<String, AttributeValue> item : response.items()) {
+                    writePayload(item, page);
+                }
+                out.write(ByteBuffer.wrap(page.toByteArray()));
+                out.force(false);
+                records.add(response.items().size());
+
+                lastKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                        ? response.lastEvaluatedKey().get(DynamoIngestionService.PK).s()
+                        : null;
+                new Checkpoint(lastKey, out.position(), lastKey == null).write(checkpointFile);
+            } while (lastKey != null);
+        }
+        return true;
+    }
+
+    private static void writePayload(final Map<String, AttributeValue> item, final ByteArrayOutputStream page)
+            throws IOException {
+        final IngestionPayload payload = IngestionPayloadCodec.decode(item.get(DynamoIngestionService.PAYLOAD));
+        // Closing a ByteArrayOutputStream is a no-op, so the page buffer survives writeValue
+        DynamoIngestionService.MAPPER.writeValue(page, payload);
+        page.write(NEWLINE);
+    }
+
+    /**
+     * Resume point of one segment.
+     */
+    private record Checkpoint(String lastKey, long offset, boolean done) {
+
+        static Checkpoint read(final Path file) throws IOException {
+            if (!Files.exists(file)) {
+                return new Checkpoint(null, 0, false);
+            }
+            final Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            return new Checkpoint(
+                    properties.getProperty("lastKey"),
+                    Long.parseLong(properties.getProperty("offset", "0")),
+                    Boolean.parseBoolean(properties.getProperty("done", "false")));
+        }
+
+        void write(final Path file) throws IOException {
+            final Properties properties = new Properties();
+            if (lastKey != null) {
+                properties.setProperty("lastKey", lastKey);
+            }
+            properties.setProperty("offset", String.valueOf(offset));
+            properties.setProperty("done", String.valueOf(done));
+
+            // Replace atomically so a crash never leaves a half-written checkpoint
+            final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, null);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pushes ingested sessions to a sink as they appear in the ingestion table's change stream.
+ * <p>
+ * INSERT changes are decoded into {@link IngestionRecord}s and handed to the
+ * {@link IngestionSink} in stream order; other changes (e.g. the consumer's own
+ * deletes) are skipped. The checkpoint is saved only after the sink accepted a
+ * record, so a crash or sink failure re-delivers that record and everything
+ * after it: delivery is at least once, never lost and never reordered.
+ */
+public final class IngestionFeed {
+
+    /**
+     * Position of the last processed change.
+     */
+    public interface Checkpoint {
+
+        /**
+         * Returns the sequence number of the last processed change, or null if none.
+         */
+        String load();
+
+        /**
+         * Records that every change up to and including the sequence number is processed.
+         */
+        void save(String sequenceNumber);
+
+        /**
+         * A checkpoint kept in memory only; enough when the stream poller tracks positions itself.
+         */
+        static Checkpoint inMemory() {
+            return new Checkpoint() {
+                private volatile String sequenceNumber;
+
+                @Override
+                public String load() {
+                    return sequenceNumber;
+                }
+
+                @Override
+                public void save(final String sequenceNumber) {
+                    this.sequenceNumber = sequenceNumber;
+                }
+            };
+        }
+    }
+
+    /**
+     * Outcome of processing a batch of changes.
+     *
+     * @param delivered            number of records accepted by the sink
+     * @param failedSequenceNumber sequence number of the first change that was not processed, or null
+     */
+    public record Result(int delivered, String failedSequenceNumber) {
+
+        public boolean failed() {
+            return failedSequenceNumber != null;
+        }
+    }
+
+    private final IngestionSink sink;
+    private final Checkpoint checkpoint;
+
+    public IngestionFeed(final IngestionSink sink, final Checkpoint checkpoint) {
+        this.sink = sink;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Processes changes in order and stops at the first one the sink rejects.
+     * Changes after the failed one are left for the next attempt.
+     */
+    public Result process(final List<ChangeStreamSource.Change> changes) {
+        int delivered = 0;
+        for (final ChangeStreamSource.Change change : changes) {
+            if (change.isInsert()) {
+                try {
+                    sink.accept(toRecord(change.newImage()));
+                } catch (IOException | RuntimeException e) {
+                    return new Result(delivered, change.sequenceNumber());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return new Result(delivered, change.sequenceNumber());
+                }
+                delivered++;
+            }
+            checkpoint.save(change.sequenceNumber());
+        }
+        return new Result(delivered, null);
+    }
+
+    /**
+     * Reads and processes changes after the checkpoint until the source has none left
+     * or a change fails.
+     *
+     * @param batchSize maximum number of changes per read
+     */
+    public Result drain(final ChangeStreamSource source, final int batchSize) {
+        int delivered = 0;
+        while (true) {
+            final List<ChangeStreamSource.Change> changes = source.read(checkpoint.load(), batchSize);
+            if (changes.isEmpty()) {
+                return new Result(delivered, null);
+            }
+            final Result result = process(changes);
+            delivered += result.delivered();
+            if (result.failed()) {
+                return new Result(delivered, result.failedSequenceNumber());
+            }
+        }
+    }
+
+    static IngestionRecord toRecord(final Map<String, AttributeValue> item) {
+        final AttributeValue id = item.get(DynamoIngestionService.PK);
+        final AttributeValue payload = item.get(DynamoIngestionService.PAYLOAD);
+        if (id == null || payload == null) {
+            throw new IllegalStateException("Ingestion item without id or payload: " + item.keySet());
+        }
+        return new IngestionRecord(id.s(), IngestionPayloadCodec.decode(payload));
+    }
+}
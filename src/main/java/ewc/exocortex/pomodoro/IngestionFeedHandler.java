@@ -0,0 +1,82 @@
+package ewc.exocortex.pomodoro;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lambda entry point for the ingestion table's DynamoDB stream.
+ * <p>
+ * Lambda polls the stream and invokes this handler only when there are new
+ * changes, so idle periods cost no reads. The stream position acts as the
+ * checkpoint: if the sink fails, the failed record is reported as a batch item
+ * failure and Lambda retries the batch from that record onwards.
+ */
+public final class IngestionFeedHandler implements RequestHandler<DynamodbEvent, StreamsEventResponse> {
+
+    private final IngestionSink sink;
+
+    /**
+     * Default constructor used by AWS Lambda.
+     */
+    public IngestionFeedHandler() {
+        this(HttpIngestionSink.fromEnvironment());
+    }
+
+    /**
+     * Constructor for testing with an injected sink.
+     */
+    public IngestionFeedHandler(final IngestionSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public StreamsEventResponse handleRequest(final DynamodbEvent event, final Context context) {
+        final List<ChangeStreamSource.Change> changes = new ArrayList<>(event.getRecords().size());
+        for (final DynamodbEvent.DynamodbStreamRecord record : event.getRecords()) {
+            changes.add(new ChangeStreamSource.Change(record.getDynamodb().getSequenceNumber(),
+                    record.getEventName(), toSdk(record.getDynamodb().getNewImage())));
+        }
+
+        final IngestionFeed.Result result =
+                new IngestionFeed(sink, IngestionFeed.Checkpoint.inMemory()).process(changes);
+        if (!result.failed()) {
+            return new StreamsEventResponse(List.of());
+        }
+        if (context != null) {
+            context.getLogger().log("Ingestion feed delivered " + result.delivered()
+                    + " records, failed at " + result.failedSequenceNumber());
+        }
+        return new StreamsEventResponse(List.of(
+                new StreamsEventResponse.BatchItemFailure(result.failedSequenceNumber())));
+    }
+
+    /**
+     * Converts the scalar attributes of a stream image; the ingestion item uses no other types.
+     */
+    static Map<String, AttributeValue> toSdk(
+            final Map<String, com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue> image) {
+        if (image == null) {
+            return Map.of();
+        }
+        final Map<String, AttributeValue> item = new HashMap<>(image.size() * 2);
+        image.forEach((name, value) -> {
+            if (value.getS() != null) {
+                item.put(name, AttributeValue.builder().s(value.getS()).build());
+            } else if (value.getN() != null) {
+                item.put(name, AttributeValue.builder().n(value.getN()).build());
+            } else if (value.getB() != null) {
+                item.put(name, AttributeValue.builder().b(SdkBytes.fromByteBuffer(value.getB())).build());
+            }
+        });
+        return item;
+    }
+}
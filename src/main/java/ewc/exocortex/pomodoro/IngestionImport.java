@@ -0,0 +1,65 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command-line back-import of historical sessions into the ingestion table.
+ * <p>
+ * Reads JSON Lines files with one {@link IngestionPayload} per line and writes
+ * them through {@link BatchingIngestionService}:
+ * <pre>
+ * java -cp target/pomodoro-bot-0.0.3.jar ewc.exocortex.pomodoro.IngestionImport sessions.jsonl...
+ * </pre>
+ */
+public final class IngestionImport {
+
+    private IngestionImport() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: IngestionImport <file.jsonl>...");
+            System.exit(2);
+        }
+
+        try (DynamoDbClient dynamoDb = DynamoDbClient.create()) {
+            final BatchingIngestionService service =
+                    new BatchingIngestionService(dynamoDb, IngestionPayloadCodec.fromEnvironment(),
+                            BatchingIngestionService.Policy.defaults());
+            long total = 0;
+            for (final String file : args) {
+                final long count = importFile(Path.of(file), service);
+                System.out.println(file + ": " + count + " sessions");
+                total += count;
+            }
+            service.flush();
+            System.out.println("Imported " + total + " sessions");
+        }
+    }
+
+    /**
+     * Ingests every non-blank line of the file. Items may still be buffered on return.
+     *
+     * @return the number of sessions read
+     */
+    static long importFile(final Path file, final DynamoIngestionService service) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                service.ingestSession(DynamoIngestionService.MAPPER.readValue(line, IngestionPayload.class));
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,141 @@
+package ewc.exocortex.pomodoro;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes the {@code payload} attribute of an ingestion record.
+ * <p>
+ * Payloads are stored as a JSON string (S). With a compression threshold set,
+ * JSON larger than the threshold is stored as a binary attribute (B) instead:
+ * <pre>
+ * codec:u8 (1 = zlib DEFLATE)  uncompressed length:i32  compressed JSON
+ * </pre>
+ * Small payloads stay plain, since DEFLATE gains nothing on a few hundred bytes
+ * and plain JSON stays readable in the console. {@link #decode(AttributeValue)}
+ * accepts every format, whatever the writer's settings.
+ */
+public final class IngestionPayloadCodec {
+
+    static final byte DEFLATE = 1;
+    private static final int HEADER_SIZE = 1 + Integer.BYTES;
+    private static final int NO_COMPRESSION = Integer.MAX_VALUE;
+
+    private final int threshold;
+    private final int level;
+
+    private IngestionPayloadCodec(final int threshold, final int level) {
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    /**
+     * Always writes plain JSON strings.
+     */
+    public static IngestionPayloadCodec plain() {
+        return new IngestionPayloadCodec(NO_COMPRESSION, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Compresses payloads whose JSON exceeds {@code thresholdBytes}.
+     */
+    public static IngestionPayloadCodec compressing(final int thresholdBytes) {
+        return new IngestionPayloadCodec(thresholdBytes, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Compresses above INGESTION_COMPRESS_THRESHOLD bytes when it is set; plain otherwise.
+     */
+    public static IngestionPayloadCodec fromEnvironment() {
+        final String threshold = System.getenv("INGESTION_COMPRESS_THRESHOLD");
+        return threshold == null || threshold.isBlank()
+                ? plain()
+                : compressing(Integer.parseInt(threshold.trim()));
+    }
+
+    /**
+     * Encodes the payload as a plain or compressed attribute.
+     */
+    public AttributeValue encode(final IngestionPayload payload) {
+        final byte[] json;
+        try {
+            json = DynamoIngestionService.MAPPER.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize session data", e);
+        }
+        if (json.length <= threshold) {
+            return AttributeValue.builder().s(new String(json, StandardCharsets.UTF_8)).build();
+        }
+        return AttributeValue.builder().b(SdkBytes.fromByteArrayUnsafe(deflate(json, level))).build();
+    }
+
+    /**
+     * Decodes a payload attribute in any supported format.
+     */
+    public static IngestionPayload decode(final AttributeValue value) {
+        try {
+            if (value.s() != null) {
+                return DynamoIngestionService.MAPPER.readValue(value.s(), IngestionPayload.class);
+            }
+            return DynamoIngestionService.MAPPER.readValue(inflate(value.b().asByteArrayUnsafe()),
+                    IngestionPayload.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable ingestion payload", e);
+        }
+    }
+
+    static byte[] deflate(final byte[] json, final int level) {
+        final Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(json);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + json.length / 2);
+            out.write(DEFLATE);
+            out.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(json.length).array());
+            final byte[] chunk = new byte[Math.min(8192, Math.max(64, json.length))];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(final byte[] data) throws IOException {
+        if (data.length < HEADER_SIZE || data[0] != DEFLATE) {
+            throw new IOException("Unsupported payload codec: " + (data.length == 0 ? "empty" : data[0]));
+        }
+        final int length = ByteBuffer.wrap(data, 1, Integer.BYTES).getInt();
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, HEADER_SIZE, data.length - HEADER_SIZE);
+            final byte[] json = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                final int n = inflater.inflate(json, read, length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != length) {
+                throw new IOException("Truncated payload: " + read + " of " + length + " bytes");
+            }
+            return json;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
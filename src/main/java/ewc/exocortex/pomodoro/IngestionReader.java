@@ -0,0 +1,97 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Reads ingested sessions in completion order, starting after a saved cursor.
+ * <p>
+ * Each page is one Query on the feed index for IDs greater than the cursor, so
+ * the cost of a poll depends on the number of new records, not on table size.
+ * Records younger than the settle delay are held back: the index is updated
+ * asynchronously, and a record from another writer with a slightly older ID
+ * could otherwise show up after the cursor has already moved past it.
+ */
+public final class IngestionReader {
+
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final Duration DEFAULT_SETTLE_DELAY = Duration.ofSeconds(5);
+
+    /**
+     * One page of records.
+     *
+     * @param records records in completion order
+     * @param cursor  cursor to pass to the next call; unchanged if the page is empty
+     * @param hasMore whether the query stopped at the page size (more records may follow)
+     */
+    public record Page(List<IngestionRecord> records, String cursor, boolean hasMore) {
+    }
+
+    private final DynamoDbClient dynamoDb;
+    private final Duration settleDelay;
+    private final LongSupplier clock;
+
+    public IngestionReader(final DynamoDbClient dynamoDb) {
+        this(dynamoDb, DEFAULT_SETTLE_DELAY, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor for testing with a controllable millisecond clock.
+     */
+    IngestionReader(final DynamoDbClient dynamoDb, final Duration settleDelay, final LongSupplier clock) {
+        this.dynamoDb = dynamoDb;
+        this.settleDelay = settleDelay;
+        this.clock = clock;
+    }
+
+    /**
+     * Reads up to {@code pageSize} records after the cursor.
+     *
+     * @param cursor   ID of the last record already processed, or null to start from the beginning
+     * @param pageSize maximum number of records, capped at {@value #MAX_PAGE_SIZE}
+     */
+    public Page read(final String cursor, final int pageSize) {
+        final String before = TimeOrderedIds.lowerBound(clock.getAsLong() - settleDelay.toMillis());
+        if (cursor != null && cursor.compareTo(before) >= 0) {
+            return new Page(List.of(), cursor, false);
+        }
+
+        final AttributeValue feed = AttributeValue.builder().s(DynamoIngestionService.FEED).build();
+        final QueryRequest.Builder query = QueryRequest.builder()
+                .tableName(DynamoIngestionService.TABLE_NAME)
+                .indexName(DynamoIngestionService.FEED_INDEX)
+                .keyConditionExpression("#feed = :feed AND #id < :before")
+                .expressionAttributeNames(Map.of(
+                        "#feed", DynamoIngestionService.FEED_ATTRIBUTE,
+                        "#id", DynamoIngestionService.PK))
+                .expressionAttributeValues(Map.of(
+                        ":feed", feed,
+                        ":before", AttributeValue.builder().s(before).build()))
+                .scanIndexForward(true)
+                .limit(Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE)));
+        if (cursor != null) {
+            // The start key need not exist; the query resumes right after it
+            query.exclusiveStartKey(Map.of(
+                    DynamoIngestionService.FEED_ATTRIBUTE, feed,
+                    DynamoIngestionService.PK, AttributeValue.builder().s(cursor).build()));
+        }
+        final QueryResponse response = dynamoDb.query(query.build());
+
+        final List<IngestionRecord> records = new ArrayList<>(response.items().size());
+        for (final Map<String, AttributeValue> item : response.items()) {
+            records.add(new IngestionRecord(item.get(DynamoIngestionService.PK).s(),
+                    IngestionPayloadCodec.decode(item.get(DynamoIngestionService.PAYLOAD))));
+        }
+        final String next = records.isEmpty() ? cursor : records.get(records.size() - 1).id();
+        final boolean hasMore = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty();
+        return new Page(List.copyOf(records), next, hasMore);
+    }
+}
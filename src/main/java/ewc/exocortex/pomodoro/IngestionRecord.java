@@ -0,0 +1,10 @@
+package ewc.exocortex.pomodoro;
+
+/**
+ * An ingested session as read back from the ingestion table.
+ *
+ * @param id      time-ordered record ID; also the cursor for reading past this record
+ * @param payload the session
+ */
+public record IngestionRecord(String id, IngestionPayload payload) {
+}
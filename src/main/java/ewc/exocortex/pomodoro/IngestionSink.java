@@ -0,0 +1,19 @@
+package ewc.exocortex.pomodoro;
+
+import java.io.IOException;
+
+/**
+ * Destination of ingested sessions (e.g. the vault). Delivery is at least once:
+ * a record may arrive again after a failure, so sinks should be idempotent on
+ * {@link IngestionRecord#id()}.
+ */
+@FunctionalInterface
+public interface IngestionSink {
+
+    /**
+     * Delivers one record.
+     *
+     * @throws IOException if delivery failed; the record will be offered again
+     */
+    void accept(IngestionRecord record) throws IOException, InterruptedException;
+}
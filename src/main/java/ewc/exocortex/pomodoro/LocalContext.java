@@ -0,0 +1,86 @@
+package ewc.exocortex.pomodoro;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lambda Context for running BotHandler outside Lambda; logs to standard output.
+ */
+final class LocalContext implements Context {
+
+    static final LocalContext INSTANCE = new LocalContext();
+
+    private static final LambdaLogger LOGGER = new LambdaLogger() {
+        @Override
+        public void log(final String message) {
+            System.out.println(message);
+        }
+
+        @Override
+        public void log(final byte[] message) {
+            System.out.println(new String(message, StandardCharsets.UTF_8));
+        }
+    };
+
+    private LocalContext() {
+    }
+
+    @Override
+    public String getAwsRequestId() {
+        return "local";
+    }
+
+    @Override
+    public String getLogGroupName() {
+        return "local";
+    }
+
+    @Override
+    public String getLogStreamName() {
+        return "local";
+    }
+
+    @Override
+    public String getFunctionName() {
+        return "pomodoro-bot";
+    }
+
+    @Override
+    public String getFunctionVersion() {
+        return "local";
+    }
+
+    @Override
+    public String getInvokedFunctionArn() {
+        return "local";
+    }
+
+    @Override
+    public CognitoIdentity getIdentity() {
+        return null;
+    }
+
+    @Override
+    public ClientContext getClientContext() {
+        return null;
+    }
+
+    @Override
+    public int getRemainingTimeInMillis() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int getMemoryLimitInMB() {
+        return (int) (Runtime.getRuntime().maxMemory() >> 20);
+    }
+
+    @Override
+    public LambdaLogger getLogger() {
+        return LOGGER;
+    }
+}
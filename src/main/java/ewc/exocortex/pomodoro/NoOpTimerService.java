@@ -7,11 +7,17 @@ public class NoOpTimerService implements TimerService {
 
     private String lastScheduleName;
     private String lastCancelledSchedule;
+    private int createdTimers;
 
     @Override
-    public String createTimer(final long chatId, final int minutes) {
-        lastScheduleName = "test-schedule-" + chatId + "-" + minutes;
-        return lastScheduleName;
+    public String newScheduleName(final long chatId) {
+        return "test-schedule-" + chatId + "-" + (createdTimers + 1);
+    }
+
+    @Override
+    public void createTimer(final String scheduleName, final long chatId, final int minutes) {
+        lastScheduleName = scheduleName;
+        createdTimers++;
     }
 
     @Override
@@ -26,4 +32,8 @@ public class NoOpTimerService implements TimerService {
     public String getLastCancelledSchedule() {
         return lastCancelledSchedule;
     }
+
+    public int getCreatedTimers() {
+        return createdTimers;
+    }
 }
@@ -0,0 +1,120 @@
+package ewc.exocortex.pomodoro;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-encoded UTF-8 bodies for outgoing sendMessage calls.
+ * <p>
+ * Everything after {@code chat_id} (the text and, for keyboards, the whole
+ * {@code reply_markup}) is serialized by Jackson once per distinct prompt and kept
+ * as bytes. Each send then only splices the chat id digits between a constant
+ * prefix and the cached suffix.
+ */
+public final class OutboundPayloadCache {
+
+    private static final byte[] CHAT_ID_PREFIX = "{\"chat_id\":".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Upper bound per cache; formatted prompts beyond it are encoded without caching.
+     */
+    private static final int MAX_ENTRIES = 256;
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, byte[]> messageSuffixes = new ConcurrentHashMap<>();
+    private final Map<KeyboardPrompt, byte[]> keyboardSuffixes = new ConcurrentHashMap<>();
+
+    public OutboundPayloadCache(final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the sendMessage body for a plain text message.
+     */
+    public byte[] message(final long chatId, final String text) throws JsonProcessingException {
+        byte[] suffix = messageSuffixes.get(text);
+        if (suffix == null) {
+            suffix = encodeSuffix(text, null);
+            if (messageSuffixes.size() < MAX_ENTRIES) {
+                messageSuffixes.putIfAbsent(text, suffix);
+            }
+        }
+        return splice(chatId, suffix);
+    }
+
+    /**
+     * Returns the sendMessage body for a message with an inline keyboard.
+     */
+    public byte[] messageWithKeyboard(final long chatId, final String text, final List<TelegramApi.Button> buttons)
+            throws JsonProcessingException {
+        final KeyboardPrompt key = new KeyboardPrompt(text, buttons);
+        byte[] suffix = keyboardSuffixes.get(key);
+        if (suffix == null) {
+            suffix = encodeSuffix(text, buttons);
+            if (keyboardSuffixes.size() < MAX_ENTRIES) {
+                keyboardSuffixes.putIfAbsent(key, suffix);
+            }
+        }
+        return splice(chatId, suffix);
+    }
+
+    /**
+     * Encodes {@code ,"text":...[,"reply_markup":...]}} - the body without its opening brace and chat_id.
+     */
+    private byte[] encodeSuffix(final String text, final List<TelegramApi.Button> buttons)
+            throws JsonProcessingException {
+        final Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("text", text);
+        if (buttons != null) {
+            // Build inline keyboard - one button per row for simplicity
+            final List<List<Map<String, String>>> keyboard = buttons.stream()
+                    .map(b -> List.of(Map.of("text", b.text(), "callback_data", b.callbackData())))
+                    .toList();
+            fields.put("reply_markup", Map.of("inline_keyboard", keyboard));
+        }
+        final byte[] object = objectMapper.writeValueAsBytes(fields);
+        object[0] = ',';
+        return object;
+    }
+
+    private static byte[] splice(final long chatId, final byte[] suffix) {
+        final int digits = digitCount(chatId);
+        final byte[] payload = new byte[CHAT_ID_PREFIX.length + digits + suffix.length];
+        System.arraycopy(CHAT_ID_PREFIX, 0, payload, 0, CHAT_ID_PREFIX.length);
+        writeDigits(chatId, payload, CHAT_ID_PREFIX.length + digits);
+        System.arraycopy(suffix, 0, payload, CHAT_ID_PREFIX.length + digits, suffix.length);
+        return payload;
+    }
+
+    private static int digitCount(final long value) {
+        // Work on the negative magnitude so Long.MIN_VALUE needs no special case
+        long q = value < 0 ? value : -value;
+        int count = value < 0 ? 2 : 1;
+        while (q <= -10) {
+            q /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    private static void writeDigits(final long value, final byte[] target, final int end) {
+        long q = value < 0 ? value : -value;
+        int pos = end;
+        do {
+            target[--pos] = (byte) ('0' - (q % 10));
+            q /= 10;
+        } while (q != 0);
+        if (value < 0) {
+            target[--pos] = '-';
+        }
+    }
+
+    private record KeyboardPrompt(String text, List<TelegramApi.Button> buttons) {
+    }
+}
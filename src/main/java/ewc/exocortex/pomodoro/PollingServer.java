@@ -0,0 +1,200 @@
+package ewc.exocortex.pomodoro;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Standalone server mode: pulls updates with getUpdates long polling instead of webhooks.
+ * <p>
+ * Each response is dispatched through a {@link ChatMailboxExecutor}, so a chat's
+ * updates run one at a time and in order while different chats run in parallel,
+ * into the same {@link BotHandler} routing as the Lambda entry points. The offset
+ * that confirms a response is sent with the next getUpdates call, and only once
+ * every update of the response has been processed; after a crash Telegram
+ * delivers the unconfirmed updates again.
+ * <pre>
+ * java -cp target/pomodoro-bot-0.0.3.jar ewc.exocortex.pomodoro.PollingServer
+ * </pre>
+ * The bot must not have a webhook set, or Telegram rejects getUpdates with 409.
+ */
+public final class PollingServer implements AutoCloseable {
+
+    public static final Duration DEFAULT_POLL_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration REQUEST_SLACK = Duration.ofSeconds(10);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final TelegramTransport transport;
+    private final StreamingUpdateParser parser;
+    private final BotHandler botHandler;
+    private final Duration pollTimeout;
+    private final ChatMailboxExecutor mailboxes;
+
+    private volatile boolean running = true;
+    private volatile Thread pollingThread;
+    private long offset;
+
+    public PollingServer(final TelegramTransport transport, final StreamingUpdateParser parser,
+            final BotHandler botHandler, final Duration pollTimeout) {
+        this(transport, parser, botHandler, pollTimeout, new ChatMailboxExecutor());
+    }
+
+    /**
+     * Creates a server that shares its per-chat mailboxes with other sources of work (e.g. timers).
+     */
+    public PollingServer(final TelegramTransport transport, final StreamingUpdateParser parser,
+            final BotHandler botHandler, final Duration pollTimeout, final ChatMailboxExecutor mailboxes) {
+        this.transport = transport;
+        this.parser = parser;
+        this.botHandler = botHandler;
+        this.pollTimeout = pollTimeout;
+        this.mailboxes = mailboxes;
+    }
+
+    /**
+     * Wires the bot for a long-lived JVM: in-process timers and a session cache.
+     * Storage and Telegram settings come from the same environment variables as the Lambda.
+     */
+    public static void main(final String[] args) throws Exception {
+        final String token = System.getenv("TELEGRAM_BOT_TOKEN");
+        if (token == null || token.isBlank()) {
+            throw new IllegalStateException("TELEGRAM_BOT_TOKEN environment variable is not set");
+        }
+        final TelegramTransport transport = TelegramTransport.fromEnvironment(token);
+        final TelegramApi telegram = new RateLimitedTelegramApi(
+                new TelegramService(transport, new ObjectMapper(), TelegramService.ParseMode.STREAMING),
+                RateLimitedTelegramApi.Limits.telegramDefaults());
+        final DynamoIngestionService ingestion = DynamoIngestionService.create();
+        // This process is the only writer, so cached sessions can be trusted for a while
+        final SessionRepository sessions =
+                new CachingSessionRepository(DynamoSessionRepository.create(), Duration.ofMinutes(5));
+
+        // Timer events go through the same per-chat mailboxes as updates; waiting for the
+        // handler keeps the timer in the journal until it has actually been handled
+        final ChatMailboxExecutor mailboxes = new ChatMailboxExecutor();
+        final AtomicReference<BotHandler> handler = new AtomicReference<>();
+        final TimingWheelTimerService timers = TimingWheelTimerService.fromEnvironment(
+                chatId -> mailboxes.submit(chatId, () -> {
+                    try {
+                        handler.get().handleTimerDone(chatId, LocalContext.INSTANCE);
+                    } catch (Exception e) {
+                        LocalContext.INSTANCE.getLogger().log("Timer done failed for chatId " + chatId + ": "
+                                + e.getClass().getName() + ": " + e.getMessage());
+                    }
+                }).join());
+        final SecurityService security = SecurityService.fromEnvironment();
+        final SpillQueue spillQueue = SpillQueue.fromEnvironment();
+        // Updates arrive through getUpdates, so there is no webhook secret to check and no redelivery table
+        handler.set(new BotHandler(security, telegram, ingestion, sessions, timers,
+                SideEffects.fromEnvironment(), DynamoSessionCompletion.create(ingestion),
+                spillQueue != null ? spillQueue : new SpillQueue(Path.of(SpillQueue.FILE_NAME)), null,
+                new WebhookFilter(null, security)));
+        timers.start();
+        transport.warmUp();
+
+        final PollingServer server = new PollingServer(transport,
+                new StreamingUpdateParser(new JsonFactory()), handler.get(), DEFAULT_POLL_TIMEOUT, mailboxes);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                timers.close();
+            } catch (IOException e) {
+                // Journal is flushed on every change; nothing left to save
+            }
+        }));
+        server.run();
+    }
+
+    /**
+     * Polls and dispatches until {@link #close()} is called.
+     */
+    public void run() {
+        pollingThread = Thread.currentThread();
+        while (running) {
+            try {
+                pollOnce();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                LocalContext.INSTANCE.getLogger().log("getUpdates failed: " + e.getMessage());
+                final long delay = e instanceof TelegramApiException api && api.retryAfterSeconds() > 0
+                        ? Duration.ofSeconds(api.retryAfterSeconds()).toMillis()
+                        : RETRY_DELAY.toMillis();
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetches one batch of updates, processes it and moves the offset past it.
+     *
+     * @return the number of updates processed
+     */
+    int pollOnce() throws IOException, InterruptedException {
+        final byte[] request = ("{\"offset\":" + offset + ",\"timeout\":" + pollTimeout.toSeconds()
+                + ",\"allowed_updates\":[\"message\",\"callback_query\"]}").getBytes(StandardCharsets.UTF_8);
+        final byte[] response = transport.fetch(TelegramTransport.Method.GET_UPDATES, request,
+                pollTimeout.plus(REQUEST_SLACK));
+        final StreamingUpdateParser.Batch batch = parser.parseUpdates(response, offset);
+        dispatch(batch.updates());
+        offset = batch.nextOffset();
+        return batch.updates().size();
+    }
+
+    /**
+     * Returns the offset the next getUpdates call will confirm.
+     */
+    long offset() {
+        return offset;
+    }
+
+    /**
+     * Stops polling; updates already being processed run to completion.
+     */
+    @Override
+    public void close() {
+        running = false;
+        final Thread thread = pollingThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        mailboxes.close();
+    }
+
+    private void dispatch(final List<TelegramApi.Update> updates) throws InterruptedException {
+        final List<CompletableFuture<Void>> processed = new ArrayList<>(updates.size());
+        for (final TelegramApi.Update update : updates) {
+            processed.add(mailboxes.submit(update.chatId(), () -> process(update)));
+        }
+        for (final CompletableFuture<Void> update : processed) {
+            try {
+                update.get();
+            } catch (ExecutionException e) {
+                // process() handles its own failures
+            }
+        }
+    }
+
+    private void process(final TelegramApi.Update update) {
+        try {
+            botHandler.processUpdate(update, LocalContext.INSTANCE);
+        } catch (Exception e) {
+            // Same policy as the webhook: the update is confirmed, not retried forever
+            LocalContext.INSTANCE.getLogger().log("CRITICAL ERROR processing update for chatId " + update.chatId()
+                    + ": " + e.getClass().getName() + ": " + e.getMessage());
+        }
+    }
+}
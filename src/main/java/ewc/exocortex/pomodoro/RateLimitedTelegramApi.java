@@ -0,0 +1,168 @@
+package ewc.exocortex.pomodoro;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * TelegramApi decorator that schedules outbound calls within Telegram's send limits.
+ * <p>
+ * Every call takes a token from a global bucket; messages additionally take one
+ * from a per-chat bucket. Callers that exceed a bucket wait for their turn instead
+ * of failing. A 429 answer pauses all sends for {@code parameters.retry_after}
+ * (or an exponential backoff if Telegram gives no hint) and the call is retried.
+ * A call that cannot go out within {@link Limits#maxDelay()} fails as before.
+ * <p>
+ * Buckets are per process, so in Lambda they smooth bursts within one container.
+ */
+public final class RateLimitedTelegramApi implements TelegramApi {
+
+    /**
+     * Blocks the calling thread; replaceable in tests.
+     */
+    @FunctionalInterface
+    public interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    /**
+     * Send limits and retry policy.
+     *
+     * @param globalPerSecond sustained calls per second across all chats
+     * @param globalBurst     calls that may go out back to back
+     * @param chatPerSecond   sustained messages per second to one chat
+     * @param chatBurst       messages that may go out back to back to one chat
+     * @param maxAttempts     attempts per call, including retries after 429
+     * @param initialBackoff  first backoff when a 429 carries no retry_after
+     * @param maxDelay        longest a call may be delayed before it fails
+     */
+    public record Limits(double globalPerSecond, int globalBurst, double chatPerSecond, int chatBurst,
+            int maxAttempts, Duration initialBackoff, Duration maxDelay) {
+
+        /**
+         * Telegram's documented limits: about 30 messages per second overall and
+         * about one per second per chat, with short bursts tolerated.
+         */
+        public static Limits telegramDefaults() {
+            return new Limits(30, 30, 1, 3, 5, Duration.ofMillis(500), Duration.ofSeconds(20));
+        }
+
+        /**
+         * The same send limits with a short delay budget for a Lambda invocation: a send must
+         * leave most of the 30 s function timeout (and the update's dedup lease) to the state
+         * writes that follow it, so it gives up after a few seconds.
+         */
+        public static Limits lambdaDefaults() {
+            return new Limits(30, 30, 1, 3, 3, Duration.ofMillis(500), Duration.ofSeconds(3));
+        }
+    }
+
+    private static final int MAX_TRACKED_CHATS = 10_000;
+
+    private final TelegramApi delegate;
+    private final Limits limits;
+    private final LongSupplier nanoClock;
+    private final Sleeper sleeper;
+    private final TokenBucket globalBucket;
+    private final Map<Long, TokenBucket> chatBuckets = new ConcurrentHashMap<>();
+    private volatile long pausedUntilNanos;
+
+    public RateLimitedTelegramApi(final TelegramApi delegate, final Limits limits) {
+        this(delegate, limits, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    public RateLimitedTelegramApi(final TelegramApi delegate, final Limits limits,
+            final LongSupplier nanoClock, final Sleeper sleeper) {
+        this.delegate = delegate;
+        this.limits = limits;
+        this.nanoClock = nanoClock;
+        this.sleeper = sleeper;
+        this.globalBucket = new TokenBucket(limits.globalBurst(), limits.globalPerSecond(), nanoClock.getAsLong());
+        this.pausedUntilNanos = nanoClock.getAsLong();
+    }
+
+    @Override
+    public Update parseUpdate(final String json) throws IOException {
+        return delegate.parseUpdate(json);
+    }
+
+    @Override
+    public void sendMessage(final long chatId, final String text) throws IOException, InterruptedException {
+        schedule(chatBucket(chatId), () -> delegate.sendMessage(chatId, text));
+    }
+
+    @Override
+    public void sendMessageWithKeyboard(final long chatId, final String text, final List<Button> buttons)
+            throws IOException, InterruptedException {
+        schedule(chatBucket(chatId), () -> delegate.sendMessageWithKeyboard(chatId, text, buttons));
+    }
+
+    @Override
+    public void answerCallbackQuery(final String callbackQueryId) throws IOException, InterruptedException {
+        schedule(null, () -> delegate.answerCallbackQuery(callbackQueryId));
+    }
+
+    private void schedule(final TokenBucket chat, final SideEffects.Action call)
+            throws IOException, InterruptedException {
+        final long deadline = nanoClock.getAsLong() + limits.maxDelay().toNanos();
+        long backoff = limits.initialBackoff().toNanos();
+
+        for (int attempt = 1; ; attempt++) {
+            awaitTurn(chat, deadline);
+            try {
+                call.run();
+                return;
+            } catch (TelegramApiException e) {
+                if (!e.isTooManyRequests() || attempt >= limits.maxAttempts()) {
+                    throw e;
+                }
+                final long pause = e.retryAfterSeconds() > 0
+                        ? TimeUnit.SECONDS.toNanos(e.retryAfterSeconds())
+                        : backoff;
+                backoff *= 2;
+                // Flood control applies to the whole bot, so hold back every sender
+                pauseUntil(nanoClock.getAsLong() + pause);
+            }
+        }
+    }
+
+    private void awaitTurn(final TokenBucket chat, final long deadline) throws IOException, InterruptedException {
+        final long now = nanoClock.getAsLong();
+        long wait = Math.max(0, pausedUntilNanos - now);
+        wait = Math.max(wait, globalBucket.reserve(now));
+        if (chat != null) {
+            wait = Math.max(wait, chat.reserve(now));
+        }
+
+        if (now + wait > deadline) {
+            globalBucket.release();
+            if (chat != null) {
+                chat.release();
+            }
+            throw new IOException("Telegram send delayed beyond " + limits.maxDelay().toMillis() + " ms; giving up");
+        }
+        if (wait > 0) {
+            sleeper.sleep(wait);
+        }
+    }
+
+    private synchronized void pauseUntil(final long untilNanos) {
+        if (untilNanos - pausedUntilNanos > 0) {
+            pausedUntilNanos = untilNanos;
+        }
+    }
+
+    private TokenBucket chatBucket(final long chatId) {
+        final long now = nanoClock.getAsLong();
+        if (chatBuckets.size() > MAX_TRACKED_CHATS) {
+            // Idle chats have full buckets; forgetting them changes nothing
+            chatBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+        return chatBuckets.computeIfAbsent(chatId,
+                id -> new TokenBucket(limits.chatBurst(), limits.chatPerSecond(), now));
+    }
+}
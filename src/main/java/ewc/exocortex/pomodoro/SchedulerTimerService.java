@@ -61,9 +61,13 @@ public final class SchedulerTimerService implements TimerService {
     }
 
     @Override
-    public String createTimer(final long chatId, final int minutes) {
+    public String newScheduleName(final long chatId) {
+        return "pomodoro-" + chatId + "-" + System.currentTimeMillis();
+    }
+
+    @Override
+    public void createTimer(final String scheduleName, final long chatId, final int minutes) {
         final Instant triggerTime = Instant.now().plusSeconds(minutes * 60L);
-        final String scheduleName = "pomodoro-" + chatId + "-" + System.currentTimeMillis();
 
         // Payload sent to Lambda when timer fires
         final String payload = String.format(
@@ -84,7 +88,6 @@ public final class SchedulerTimerService implements TimerService {
                 .build();
 
         scheduler.createSchedule(request);
-        return scheduleName;
     }
 
     @Override
@@ -1,26 +1,169 @@
 package ewc.exocortex.pomodoro;
 
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.stream.LongStream;
+
 /**
- * Verifies that the incoming Telegram message is from the authorized user.
- * This is a single-user bot, so we hardcode the allowed Chat ID.
+ * Verifies that the incoming Telegram message is from an authorized chat.
+ * <p>
+ * The allowed chat IDs are held in a {@link ChatIdSet}, so a check costs a few
+ * array reads and allocates nothing. With an {@link AllowlistSource} the set is
+ * reloaded once the reload interval has passed: the check that notices starts the
+ * reload on a virtual thread and answers from the current set, and the new set
+ * replaces it with a single volatile write. A failed reload keeps the current set;
+ * if even the first load fails, only the admin is allowed until a reload succeeds.
  */
 public final class SecurityService {
 
+    static final String ALLOWLIST_TABLE = "PomodoroAllowlist";
+    static final String PK = "chatId";
+    private static final Duration DEFAULT_RELOAD_INTERVAL = Duration.ofMinutes(1);
+
+    /**
+     * Supplies the allowed chat IDs.
+     */
+    @FunctionalInterface
+    public interface AllowlistSource {
+        long[] load() throws IOException;
+    }
+
     private final long adminChatId;
+    private final AllowlistSource source;
+    private final long reloadIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final Executor reloader;
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private volatile ChatIdSet allowed;
+    private volatile long nextReloadAt;
 
+    /**
+     * Creates a single-user service.
+     */
     public SecurityService(final long adminChatId) {
         this.adminChatId = adminChatId;
+        this.source = null;
+        this.reloadIntervalNanos = 0;
+        this.nanoClock = null;
+        this.reloader = null;
+        this.allowed = ChatIdSet.of(adminChatId);
+    }
+
+    /**
+     * Creates a service that allows the admin plus every chat of the allowlist.
+     * The allowlist is loaded before this returns; if that fails, the admin alone
+     * is allowed and the load is retried after the reload interval.
+     *
+     * @param adminChatId    always allowed; 0 for none
+     * @param source         the allowlist
+     * @param reloadInterval how long a loaded allowlist is used before it is reloaded
+     */
+    public SecurityService(final long adminChatId, final AllowlistSource source, final Duration reloadInterval) {
+        this(adminChatId, source, reloadInterval, System::nanoTime,
+                task -> Thread.ofVirtual().name("allowlist-reload").start(task));
+    }
+
+    /**
+     * Constructor for testing with a controllable clock and reload executor.
+     */
+    SecurityService(final long adminChatId, final AllowlistSource source, final Duration reloadInterval,
+            final LongSupplier nanoClock, final Executor reloader) {
+        this.adminChatId = adminChatId;
+        this.source = source;
+        this.reloadIntervalNanos = reloadInterval.toNanos();
+        this.nanoClock = nanoClock;
+        this.reloader = reloader;
+        try {
+            reload();
+        } catch (IOException | RuntimeException e) {
+            // Don't fail the cold start; the regular reload retries
+            allowed = adminChatId != 0 ? ChatIdSet.of(adminChatId) : ChatIdSet.of();
+            System.err.println("Allowlist load failed, allowing the admin only: " + e.getMessage());
+        }
     }
 
     /**
-     * Creates a SecurityService using the ADMIN_CHAT_ID environment variable.
+     * Creates a SecurityService from the environment. ADMIN_CHAT_ID is the admin;
+     * ALLOWLIST_FILE (one chat ID per line, {@code #} comments) or ALLOWLIST_TABLE
+     * (a DynamoDB table keyed by numeric {@code chatId}) adds an allowlist, reloaded
+     * every ALLOWLIST_RELOAD_SECONDS (default 60).
      */
     public static SecurityService fromEnvironment() {
         final String envValue = System.getenv("ADMIN_CHAT_ID");
-        if (envValue == null || envValue.isBlank()) {
+        final String file = System.getenv("ALLOWLIST_FILE");
+        final String table = System.getenv("ALLOWLIST_TABLE");
+        final boolean hasAllowlist = file != null && !file.isBlank() || table != null && !table.isBlank();
+        if ((envValue == null || envValue.isBlank()) && !hasAllowlist) {
             throw new IllegalStateException("ADMIN_CHAT_ID environment variable is not set");
         }
-        return new SecurityService(Long.parseLong(envValue));
+        final long adminChatId = envValue == null || envValue.isBlank() ? 0L : Long.parseLong(envValue.trim());
+        if (!hasAllowlist) {
+            return new SecurityService(adminChatId);
+        }
+
+        final String seconds = System.getenv("ALLOWLIST_RELOAD_SECONDS");
+        final Duration reloadInterval = seconds == null || seconds.isBlank()
+                ? DEFAULT_RELOAD_INTERVAL
+                : Duration.ofSeconds(Long.parseLong(seconds.trim()));
+        final AllowlistSource source = file != null && !file.isBlank()
+                ? fileSource(Path.of(file.trim()))
+                : tableSource(DynamoDbClient.create(), table.trim());
+        return new SecurityService(adminChatId, source, reloadInterval);
+    }
+
+    /**
+     * Reads one chat ID per line; blank lines and text after {@code #} are ignored.
+     */
+    public static AllowlistSource fileSource(final Path path) {
+        return () -> {
+            try (var lines = Files.lines(path, StandardCharsets.UTF_8)) {
+                return lines.map(line -> {
+                    final int comment = line.indexOf('#');
+                    return (comment >= 0 ? line.substring(0, comment) : line).strip();
+                }).filter(line -> !line.isEmpty()).mapToLong(Long::parseLong).toArray();
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid chat ID in " + path + ": " + e.getMessage(), e);
+            }
+        };
+    }
+
+    /**
+     * Scans the {@code chatId} attribute of every item in the table.
+     */
+    public static AllowlistSource tableSource(final DynamoDbClient dynamoDb, final String tableName) {
+        return () -> {
+            final LongStream.Builder chatIds = LongStream.builder();
+            Map<String, AttributeValue> startKey = null;
+            do {
+                final ScanRequest.Builder scan = ScanRequest.builder()
+                        .tableName(tableName)
+                        .projectionExpression("#id")
+                        .expressionAttributeNames(Map.of("#id", PK));
+                if (startKey != null) {
+                    scan.exclusiveStartKey(startKey);
+                }
+                final ScanResponse page = dynamoDb.scan(scan.build());
+                for (final Map<String, AttributeValue> item : page.items()) {
+                    chatIds.add(Long.parseLong(item.get(PK).n()));
+                }
+                startKey = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty()
+                        ? page.lastEvaluatedKey()
+                        : null;
+            } while (startKey != null);
+            return chatIds.build().toArray();
+        };
     }
 
     /**
@@ -30,6 +173,35 @@ public final class SecurityService {
      * @return true if authorized, false otherwise
      */
     public boolean isAuthorized(final long chatId) {
-        return chatId == adminChatId;
+        final boolean authorized = allowed.contains(chatId);
+        if (source != null && nanoClock.getAsLong() - nextReloadAt >= 0 && reloading.compareAndSet(false, true)) {
+            reloader.execute(this::reloadQuietly);
+        }
+        return authorized;
+    }
+
+    /**
+     * Loads the allowlist now and swaps it in.
+     */
+    void reload() throws IOException {
+        try {
+            final long[] chatIds = source.load();
+            final long[] withAdmin = adminChatId != 0
+                    ? LongStream.concat(LongStream.of(adminChatId), LongStream.of(chatIds)).toArray()
+                    : chatIds;
+            allowed = ChatIdSet.of(withAdmin);
+        } finally {
+            nextReloadAt = nanoClock.getAsLong() + reloadIntervalNanos;
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Allowlist reload failed, keeping " + allowed.size() + " chats: " + e.getMessage());
+        } finally {
+            reloading.set(false);
+        }
     }
 }
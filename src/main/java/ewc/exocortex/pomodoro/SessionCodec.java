@@ -0,0 +1,26 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+/**
+ * Maps SessionData to and from the attributes of a DynamoDB item.
+ * The key and the version attribute are owned by the repository.
+ */
+public interface SessionCodec {
+
+    /**
+     * Encodes the session into item attributes (without key and version).
+     */
+    Map<String, AttributeValue> encode(SessionData session);
+
+    /**
+     * Decodes item attributes written by this codec.
+     *
+     * @param chatId  the chat ID from the item key
+     * @param version the version stored in the item
+     * @param item    the item attributes
+     */
+    SessionData decode(long chatId, long version, Map<String, AttributeValue> item);
+}
@@ -0,0 +1,29 @@
+package ewc.exocortex.pomodoro;
+
+/**
+ * Finishes a session: records it for ingestion and removes its state.
+ */
+public interface SessionCompletion {
+
+    /**
+     * Completes the session.
+     *
+     * @param session the session being finished, as read for this update
+     * @param payload the ingestion record for the session
+     * @return true if the session was completed now, false if it was already
+     *         completed or has changed since it was read
+     */
+    boolean complete(SessionData session, IngestionPayload payload);
+
+    /**
+     * Ingests the session, then deletes its state, as two separate calls.
+     */
+    static SessionCompletion sequential(final DynamoIngestionService ingestionService,
+            final SessionRepository sessionRepository) {
+        return (session, payload) -> {
+            ingestionService.ingestSession(payload);
+            sessionRepository.deleteSession(session.chatId());
+            return true;
+        };
+    }
+}
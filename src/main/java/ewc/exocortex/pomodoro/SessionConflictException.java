@@ -0,0 +1,30 @@
+package ewc.exocortex.pomodoro;
+
+/**
+ * A session write lost to a concurrent writer: the persisted version is no longer
+ * the one the new state was derived from.
+ */
+public class SessionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long chatId;
+    private final long expectedVersion;
+
+    public SessionConflictException(final long chatId, final long expectedVersion) {
+        super("Session for chatId " + chatId + " is no longer at version " + expectedVersion);
+        this.chatId = chatId;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public long chatId() {
+        return chatId;
+    }
+
+    /**
+     * Returns the version the rejected write expected; 0 means no session was expected to exist.
+     */
+    public long expectedVersion() {
+        return expectedVersion;
+    }
+}
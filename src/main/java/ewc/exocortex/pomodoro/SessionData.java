@@ -20,25 +20,27 @@ public record SessionData(
         Instant startTime, // When the timer started
 
         // Post-work Reflection Data
-        String outcome // What was done + reflection + next step
+        String outcome, // What was done + reflection + next step
+
+        long version // Version of the persisted item this state was read from; 0 if never persisted
 ) {
 
     public static SessionData idle(final long chatId) {
         return new SessionData(chatId, SessionState.IDLE, null, null,
                 null, null, null, null,
-                null);
+                null, 0L);
     }
 
     public SessionData waitingForDuration() {
         return new SessionData(chatId, SessionState.WAITING_FOR_DURATION, null, null,
                 null, null, null, null,
-                null);
+                null, version);
     }
 
     public SessionData waitingForTask(final int selectedDuration) {
         return new SessionData(chatId, SessionState.WAITING_FOR_TASK, selectedDuration, null,
                 null, null, null, null,
-                null);
+                null, version);
     }
 
     public SessionData waitingForRole(final String task) {
@@ -52,30 +54,53 @@ public record SessionData(
     public SessionData working(final String productType, final Instant start, final String schedule) {
         return new SessionData(chatId, SessionState.WORKING, duration, schedule,
                 task, role, productType, start,
-                null);
+                null, version);
     }
 
     public SessionData waitingForExtension() {
         return new SessionData(chatId, SessionState.WAITING_FOR_EXTENSION, duration, scheduleName,
                 task, role, productType, startTime,
-                null);
+                null, version);
     }
 
     public SessionData workingExtended(final String newScheduleName) {
         return new SessionData(chatId, SessionState.WORKING, duration, newScheduleName,
                 task, role, productType, startTime,
-                null);
+                null, version);
     }
 
     public SessionData waitingForOutcome() {
         return new SessionData(chatId, SessionState.WAITING_FOR_OUTCOME, duration, scheduleName,
                 task, role, productType, startTime,
-                null);
+                null, version);
+    }
+
+    /**
+     * Returns this state stamped with the version it is persisted under.
+     * Versions grow by one per save; a chain that starts from an unpersisted
+     * state is seeded from the wall clock, so a session recreated after a delete
+     * never reuses the versions of its predecessor.
+     */
+    public SessionData nextVersion() {
+        final long next = version == 0 ? System.currentTimeMillis() : version + 1;
+        return new SessionData(chatId, status, duration, scheduleName,
+                task, role, productType, startTime,
+                outcome, next);
+    }
+
+    /**
+     * Returns this state to be written over the item persisted under {@code persistedVersion},
+     * e.g. to restore it after a later write.
+     */
+    public SessionData atVersion(final long persistedVersion) {
+        return new SessionData(chatId, status, duration, scheduleName,
+                task, role, productType, startTime,
+                outcome, persistedVersion);
     }
 
     private SessionData copyWithStatusAndRitual(SessionState pStatus, String pTask, String pRole, String pProd) {
         return new SessionData(chatId, pStatus, duration, scheduleName,
                 pTask, pRole, pProd, startTime,
-                outcome);
+                outcome, version);
     }
 }
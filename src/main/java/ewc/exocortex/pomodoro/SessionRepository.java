@@ -15,11 +15,35 @@ public interface SessionRepository {
     SessionData getSession(long chatId);
 
     /**
-     * Saves or updates a session.
+     * Saves or updates a session under the next version ({@link SessionData#nextVersion()}),
+     * provided the persisted session is still at {@code session.version()}.
      *
      * @param session the session data to save
+     * @return the session as persisted, carrying its new version
+     * @throws SessionConflictException if another writer changed the session since it was read
      */
-    void saveSession(SessionData session);
+    SessionData saveSession(SessionData session);
+
+    /**
+     * Returns the version of the persisted session, or 0 if none exists.
+     * Implementations should answer this more cheaply than a full read.
+     *
+     * @param chatId the Telegram chat ID
+     * @return the persisted version
+     */
+    default long getVersion(final long chatId) {
+        return getSession(chatId).version();
+    }
+
+    /**
+     * Drops any copy of the session held in memory, after the item was changed
+     * outside this repository (e.g. deleted by a transaction).
+     *
+     * @param chatId the Telegram chat ID
+     */
+    default void evict(final long chatId) {
+        // Nothing held by default
+    }
 
     /**
      * Deletes a session (clears state).
@@ -2,6 +2,7 @@ package ewc.exocortex.pomodoro;
 
 /**
  * Represents the possible states of a Pomodoro session.
+ * Ordinals are persisted by {@link BinarySessionCodec}: add new states at the end.
  */
 public enum SessionState {
     /**
@@ -0,0 +1,167 @@
+package ewc.exocortex.pomodoro;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the independent I/O side effects of a transition (Telegram, DynamoDB, Scheduler calls).
+ * <p>
+ * In sequential mode every action runs immediately on the calling thread, exactly as
+ * if it were called directly. In concurrent mode actions are forked onto virtual
+ * threads, so a transition costs roughly its slowest call instead of the sum.
+ * Ordering between dependent calls is the caller's job: only pass actions that
+ * may overlap.
+ */
+public final class SideEffects {
+
+    /**
+     * A side effect that may perform blocking I/O.
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Shared by every concurrent instance; virtual threads need no pool and no shutdown.
+     */
+    private static final class VirtualThreads {
+        static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    private final ExecutorService executor;
+
+    private SideEffects(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Runs every action on the calling thread, in order.
+     */
+    public static SideEffects sequential() {
+        return new SideEffects(null);
+    }
+
+    /**
+     * Forks actions onto virtual threads of a shared executor.
+     */
+    public static SideEffects concurrent() {
+        return new SideEffects(VirtualThreads.EXECUTOR);
+    }
+
+    /**
+     * Uses concurrent mode when CONCURRENT_SIDE_EFFECTS=true, sequential otherwise.
+     */
+    public static SideEffects fromEnvironment() {
+        return "true".equalsIgnoreCase(System.getenv("CONCURRENT_SIDE_EFFECTS")) ? concurrent() : sequential();
+    }
+
+    /**
+     * Starts an action that the caller will {@link Pending#await() await} later.
+     * In sequential mode the action has already completed when this returns.
+     */
+    public Pending start(final Action action) throws IOException, InterruptedException {
+        if (executor == null) {
+            action.run();
+            return Pending.COMPLETED;
+        }
+        return new Pending(executor.submit(() -> {
+            action.run();
+            return null;
+        }));
+    }
+
+    /**
+     * Runs all actions and returns once every one of them has finished.
+     * If any action fails, the first failure is rethrown with the others attached as suppressed.
+     */
+    public void runAll(final Action... actions) throws IOException, InterruptedException {
+        if (executor == null || actions.length == 0) {
+            for (final Action action : actions) {
+                action.run();
+            }
+            return;
+        }
+
+        final Pending[] forked = new Pending[actions.length - 1];
+        for (int i = 0; i < forked.length; i++) {
+            forked[i] = start(actions[i]);
+        }
+
+        // The last action runs on the calling thread; no need to hop for it
+        Exception failure = null;
+        try {
+            actions[actions.length - 1].run();
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            failure = e;
+        }
+        for (final Pending pending : forked) {
+            try {
+                pending.await();
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        rethrow(failure);
+    }
+
+    private static void rethrow(final Exception failure) throws IOException, InterruptedException {
+        if (failure instanceof IOException e) {
+            throw e;
+        }
+        if (failure instanceof InterruptedException e) {
+            throw e;
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+    }
+
+    /**
+     * Handle to a started side effect.
+     */
+    public static final class Pending {
+
+        private static final Pending COMPLETED = new Pending(null);
+
+        private final Future<?> future;
+
+        private Pending(final Future<?> future) {
+            this.future = future;
+        }
+
+        /**
+         * Waits for the action and rethrows its failure, if any.
+         */
+        public void await() throws IOException, InterruptedException {
+            if (future == null) {
+                return;
+            }
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                if (cause instanceof InterruptedException ie) {
+                    throw ie;
+                }
+                if (cause instanceof RuntimeException re) {
+                    throw re;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw new IOException("Side effect failed", cause);
+            }
+        }
+    }
+}
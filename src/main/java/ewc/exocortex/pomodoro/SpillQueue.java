@@ -0,0 +1,213 @@
+package ewc.exocortex.pomodoro;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only queue of sessions that could not be ingested (e.g. DynamoDB throttling).
+ * <p>
+ * Each record is {@code length:i32 crc32:i32 json} and is forced to disk before
+ * {@link #append(IngestionPayload)} returns. {@link #drain(DynamoIngestionService)}
+ * re-ingests records in order and keeps whatever could not be written; appends are
+ * not blocked while it waits on DynamoDB. A record whose length or checksum does not
+ * match is a torn write from a crash; it and anything after it are discarded, and the
+ * first append of a queue cuts them off so new records are not written behind them.
+ * <p>
+ * The file is the only copy of a spilled session, so it belongs on storage that
+ * outlives the process (e.g. the server-mode host), not in a Lambda container's /tmp.
+ */
+public final class SpillQueue {
+
+    static final String FILE_NAME = "pomodoro-ingestion.spill";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final Path file;
+    private final Object drainLock = new Object();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    /** Whether the file is known to end on a record boundary; guarded by this. */
+    private boolean tailChecked;
+
+    public SpillQueue(final Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates a queue in INGESTION_SPILL_DIR, or returns null (no spilling) if it is not set.
+     */
+    public static SpillQueue fromEnvironment() {
+        final String dir = System.getenv("INGESTION_SPILL_DIR");
+        return dir == null || dir.isBlank() ? null : new SpillQueue(Path.of(dir.trim()).resolve(FILE_NAME));
+    }
+
+    /**
+     * Durably appends the payload.
+     */
+    public synchronized void append(final IngestionPayload payload) throws IOException {
+        final byte[] json = DynamoIngestionService.MAPPER.writeValueAsBytes(payload);
+        final CRC32 crc = new CRC32();
+        crc.update(json);
+        final ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + json.length)
+                .putInt(json.length)
+                .putInt((int) crc.getValue())
+                .put(json)
+                .flip();
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            if (!tailChecked) {
+                truncateTornTail(channel);
+            }
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            // The write may have stopped part-way through the record
+            tailChecked = false;
+            throw e;
+        }
+    }
+
+    /**
+     * Cuts off a torn record left by a crash; {@link #read()} stops at it, so anything
+     * appended behind it would never be drained.
+     */
+    private void truncateTornTail(final FileChannel channel) throws IOException {
+        final int validLength = scan(Files.readAllBytes(file), null);
+        if (channel.size() > validLength) {
+            channel.truncate(validLength);
+            channel.force(false);
+        }
+        tailChecked = true;
+    }
+
+    /**
+     * Returns whether there is nothing to drain. Costs one file-system stat.
+     */
+    public boolean isEmpty() {
+        try {
+            return !Files.exists(file) || Files.size(file) == 0;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Ingests spilled sessions in order, one call each, and removes those that were written.
+     * Stops at the first failure; the rest stay queued.
+     *
+     * @param target a service that writes synchronously (not a batching one)
+     * @return the number of sessions ingested
+     */
+    public int drain(final DynamoIngestionService target) throws IOException {
+        synchronized (drainLock) {
+            final List<IngestionPayload> pending = read();
+            int ingested = 0;
+            try {
+                for (final IngestionPayload payload : pending) {
+                    target.ingestSession(payload);
+                    ingested++;
+                }
+            } finally {
+                if (ingested > 0) {
+                    removeFirst(ingested);
+                }
+            }
+            return ingested;
+        }
+    }
+
+    /**
+     * Drains on a virtual thread unless the queue is empty or a drain is already running.
+     * Failures are left for the next attempt.
+     */
+    public void drainInBackground(final DynamoIngestionService target) {
+        if (isEmpty() || !draining.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("spill-drain").start(() -> {
+            try {
+                drain(target);
+            } catch (IOException | RuntimeException e) {
+                // Still spilled; the next invocation retries
+            } finally {
+                draining.set(false);
+            }
+        });
+    }
+
+    /**
+     * Returns the valid records currently queued.
+     */
+    synchronized List<IngestionPayload> read() throws IOException {
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        final List<IngestionPayload> payloads = new ArrayList<>();
+        scan(Files.readAllBytes(file), payloads);
+        return payloads;
+    }
+
+    /**
+     * Walks the records up to the first torn or corrupt one.
+     *
+     * @param payloads receives the valid records, or null to only measure them
+     * @return the length in bytes of the valid prefix
+     */
+    private static int scan(final byte[] bytes, final List<IngestionPayload> payloads) throws IOException {
+        final ByteBuffer data = ByteBuffer.wrap(bytes);
+        final CRC32 crc = new CRC32();
+        int validLength = 0;
+        while (data.remaining() >= HEADER_SIZE) {
+            final int length = data.getInt();
+            final int checksum = data.getInt();
+            if (length < 0 || length > MAX_RECORD_SIZE || length > data.remaining()) {
+                break;
+            }
+            crc.reset();
+            crc.update(bytes, data.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            if (payloads != null) {
+                payloads.add(DynamoIngestionService.MAPPER.readValue(bytes, data.position(), length,
+                        IngestionPayload.class));
+            }
+            data.position(data.position() + length);
+            validLength = data.position();
+        }
+        return validLength;
+    }
+
+    /**
+     * Drops the oldest records. Appends only ever add to the end, so these are the
+     * records a drain snapshotted and wrote, even if more arrived meanwhile.
+     */
+    private synchronized void removeFirst(final int count) throws IOException {
+        final List<IngestionPayload> current = read();
+        rewrite(current.subList(Math.min(count, current.size()), current.size()));
+    }
+
+    private void rewrite(final List<IngestionPayload> remaining) throws IOException {
+        if (remaining.isEmpty()) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        final SpillQueue rewritten = new SpillQueue(tmp);
+        for (final IngestionPayload payload : remaining) {
+            rewritten.append(payload);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,205 @@
+package ewc.exocortex.pomodoro;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Stream-based Lambda entry point for the Pomodoro Bot.
+ * <p>
+ * Reads the raw invocation payload once: EventBridge TIMER_DONE events are
+ * recognized by their {@code action}/{@code chatId} fields, and the {@code body}
+ * of an API Gateway event is decoded straight into a {@link TelegramApi.Update}
+ * without building the event Map or copying the body into a String.
+ * Before that, the {@link WebhookFilter} checks the secret-token header and
+ * scans the body, so junk traffic is answered without a parse.
+ * Routing is delegated to {@link BotHandler}.
+ * In webhook-reply mode the captured method call is written as the response body.
+ */
+public final class StreamBotHandler implements RequestStreamHandler {
+
+    private static final byte[] SUCCESS_RESPONSE =
+            "{\"statusCode\":200,\"body\":\"{\\\"ok\\\":true}\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] UNAUTHORIZED_RESPONSE = "{\"statusCode\":401}".getBytes(StandardCharsets.UTF_8);
+
+    private final BotHandler botHandler;
+    private final JsonFactory jsonFactory;
+    private final StreamingUpdateParser updateParser;
+    private final WebhookFilter webhookFilter;
+
+    /**
+     * Default constructor used by AWS Lambda.
+     */
+    public StreamBotHandler() {
+        this(new BotHandler());
+    }
+
+    /**
+     * Constructor for testing with an injected BotHandler.
+     */
+    public StreamBotHandler(final BotHandler botHandler) {
+        this.botHandler = botHandler;
+        this.jsonFactory = JsonFactory.builder()
+                .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+                .build();
+        this.updateParser = new StreamingUpdateParser(jsonFactory);
+        this.webhookFilter = botHandler.webhookFilter();
+    }
+
+    @Override
+    public void handleRequest(final InputStream input, final OutputStream output, final Context context)
+            throws IOException {
+        try {
+            final Invocation invocation = readInvocation(input);
+            if (invocation.isTimerDone()) {
+                botHandler.handleTimerDone(invocation.chatId, context);
+            } else if (!webhookFilter.acceptsSecret(invocation.secretToken)) {
+                output.write(UNAUTHORIZED_RESPONSE);
+                return;
+            } else {
+                botHandler.beginWebhookReply();
+                botHandler.processUpdate(invocation.update(), context);
+            }
+        } catch (Exception e) {
+            context.getLogger()
+                    .log("CRITICAL ERROR processing request: " + e.getClass().getName() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        final byte[] reply = botHandler.takeWebhookReply();
+        if (reply == null) {
+            output.write(SUCCESS_RESPONSE);
+        } else {
+            writeReplyResponse(reply, output);
+        }
+    }
+
+    private void writeReplyResponse(final byte[] reply, final OutputStream output) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(output, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeNumberField("statusCode", 200);
+            generator.writeObjectFieldStart("headers");
+            generator.writeStringField("Content-Type", "application/json");
+            generator.writeEndObject();
+            generator.writeFieldName("body");
+            generator.writeUTF8String(reply, 0, reply.length);
+            generator.writeEndObject();
+        }
+    }
+
+    private Invocation readInvocation(final InputStream input) throws IOException {
+        final Invocation invocation = new Invocation();
+        try (JsonParser parser = jsonFactory.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return invocation;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                final JsonToken token = parser.nextToken();
+                switch (name) {
+                    case "action" -> invocation.action = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "chatId" -> {
+                        if (token.isNumeric()) {
+                            invocation.chatId = parser.getLongValue();
+                        }
+                    }
+                    case "isBase64Encoded" -> invocation.base64Encoded = token == JsonToken.VALUE_TRUE;
+                    case "headers" -> {
+                        if (token == JsonToken.START_OBJECT) {
+                            readHeaders(parser, invocation);
+                        }
+                    }
+                    case "body" -> {
+                        if (token == JsonToken.VALUE_STRING) {
+                            readBody(parser, invocation);
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return invocation;
+    }
+
+    private void readHeaders(final JsonParser parser, final Invocation invocation) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_STRING && WebhookFilter.SECRET_HEADER.equalsIgnoreCase(name)) {
+                invocation.secretToken = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        invocation.headersRead = true;
+    }
+
+    private void readBody(final JsonParser parser, final Invocation invocation) throws IOException {
+        final char[] chars = parser.getTextCharacters();
+        final int offset = parser.getTextOffset();
+        final int length = parser.getTextLength();
+
+        int start = offset;
+        while (start < offset + length && Character.isWhitespace(chars[start])) {
+            start++;
+        }
+        if (start == offset + length) {
+            return; // Blank body
+        }
+
+        final boolean secretKnown = invocation.headersRead || !webhookFilter.requiresSecret();
+        if (!invocation.base64Encoded && chars[start] == '{' && secretKnown) {
+            // Common case: Telegram posts application/json, which API Gateway passes through as text
+            if (webhookFilter.acceptsSecret(invocation.secretToken)) {
+                invocation.verdict = webhookFilter.check(CharBuffer.wrap(chars, offset, length));
+                if (invocation.verdict == WebhookFilter.Verdict.PROCESS) {
+                    invocation.parsedUpdate = updateParser.parse(chars, offset, length);
+                }
+            }
+        } else {
+            // Base64 (or unknown until isBase64Encoded or the headers are seen): decode once the whole event is read
+            invocation.rawBody = new String(chars, offset, length);
+        }
+    }
+
+    /**
+     * Fields of one invocation payload, filled in while streaming.
+     */
+    private final class Invocation {
+        String action;
+        long chatId;
+        boolean base64Encoded;
+        boolean headersRead;
+        String secretToken;
+        WebhookFilter.Verdict verdict = WebhookFilter.Verdict.PROCESS;
+        TelegramApi.Update parsedUpdate;
+        String rawBody;
+
+        boolean isTimerDone() {
+            return "TIMER_DONE".equals(action);
+        }
+
+        TelegramApi.Update update() throws IOException {
+            if (parsedUpdate != null || rawBody == null) {
+                return parsedUpdate;
+            }
+            final String json = base64Encoded
+                    ? new String(Base64.getDecoder().decode(rawBody.trim()), StandardCharsets.UTF_8)
+                    : rawBody;
+            verdict = webhookFilter.check(json);
+            return verdict == WebhookFilter.Verdict.PROCESS ? updateParser.parse(json) : null;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package ewc.exocortex.pomodoro;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token-level parser for Telegram webhook bodies.
+ * <p>
+ * Pulls only {@code callback_query.id/data/message.chat.id} and
+ * {@code message.chat.id/text}; every other subtree ({@code from}, {@code entities},
+ * {@code reply_markup}, photos, ...) is skipped without being materialized.
+ */
+public final class StreamingUpdateParser {
+
+    /**
+     * Updates of one getUpdates response.
+     *
+     * @param updates    the message and callback updates, in update_id order
+     * @param nextOffset the offset that confirms every update of the response
+     */
+    public record Batch(List<TelegramApi.Update> updates, long nextOffset) {
+    }
+
+    private final JsonFactory jsonFactory;
+
+    public StreamingUpdateParser(final JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Parses a webhook body.
+     *
+     * @param json the raw JSON body from Telegram
+     * @return the parsed Update, or null if not a message or callback update
+     * @throws IOException if the body is not valid JSON
+     */
+    public TelegramApi.Update parse(final String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return parse(parser);
+        }
+    }
+
+    /**
+     * Parses a webhook body held in a region of a char buffer.
+     */
+    public TelegramApi.Update parse(final char[] buffer, final int offset, final int length) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(buffer, offset, length)) {
+            return parse(parser);
+        }
+    }
+
+    /**
+     * Reads one Update object from the parser. The parser must be positioned
+     * before the object's START_OBJECT token; it is left on the matching END_OBJECT.
+     */
+    public TelegramApi.Update parse(final JsonParser parser) throws IOException {
+        return parse(parser, new long[1]);
+    }
+
+    /**
+     * Parses a getUpdates response ({@code {"ok":true,"result":[...]}}).
+     * Updates that are neither messages nor callback queries are skipped but still confirmed.
+     *
+     * @param offset the offset the request was made with; returned as is if there are no updates
+     */
+    public Batch parseUpdates(final byte[] body, final long offset) throws IOException {
+        final List<TelegramApi.Update> updates = new ArrayList<>();
+        long nextOffset = offset;
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("getUpdates response is not an object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_ARRAY || !"result".equals(name)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                final long[] updateId = new long[1];
+                while (true) {
+                    updateId[0] = -1;
+                    final TelegramApi.Update update = parse(parser, updateId);
+                    if (parser.currentToken() == JsonToken.END_ARRAY) {
+                        break;
+                    }
+                    if (updateId[0] >= nextOffset) {
+                        nextOffset = updateId[0] + 1;
+                    }
+                    if (update != null) {
+                        updates.add(update);
+                    }
+                }
+            }
+        }
+        return new Batch(List.copyOf(updates), nextOffset);
+    }
+
+    private TelegramApi.Update parse(final JsonParser parser, final long[] updateId) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+
+        final Fields callback = new Fields();
+        final Fields message = new Fields();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            if ("update_id".equals(name) && token.isNumeric()) {
+                updateId[0] = parser.getLongValue();
+            } else if (token == JsonToken.START_OBJECT && "callback_query".equals(name)) {
+                readCallbackQuery(parser, callback);
+            } else if (token == JsonToken.START_OBJECT && "message".equals(name)) {
+                readMessage(parser, message);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        // Callback queries take precedence, as in the tree parser
+        if (callback.present) {
+            if (!callback.hasChatId) {
+                return null;
+            }
+            return new TelegramApi.Update(callback.chatId, null, callback.callbackQueryId, callback.callbackData,
+                    Math.max(updateId[0], 0L));
+        }
+
+        if (!message.present || !message.hasChatId) {
+            return null; // Not a message update
+        }
+        return new TelegramApi.Update(message.chatId, message.text != null ? message.text : "", null, null,
+                Math.max(updateId[0], 0L));
+    }
+
+    private void readCallbackQuery(final JsonParser parser, final Fields fields) throws IOException {
+        fields.present = true;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            switch (name) {
+                case "id" -> fields.callbackQueryId = scalarText(parser, token);
+                case "data" -> fields.callbackData = scalarText(parser, token);
+                case "message" -> {
+                    if (token == JsonToken.START_OBJECT) {
+                        readMessageChatOnly(parser, fields);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readMessage(final JsonParser parser, final Fields fields) throws IOException {
+        fields.present = true;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT && "chat".equals(name)) {
+                readChat(parser, fields);
+            } else if ("text".equals(name)) {
+                fields.text = scalarText(parser, token);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readMessageChatOnly(final JsonParser parser, final Fields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            if (parser.nextToken() == JsonToken.START_OBJECT && "chat".equals(name)) {
+                readChat(parser, fields);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readChat(final JsonParser parser, final Fields fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            if ("id".equals(name) && token.isScalarValue()) {
+                fields.chatId = parser.getValueAsLong();
+                fields.hasChatId = true;
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private String scalarText(final JsonParser parser, final JsonToken token) throws IOException {
+        if (token.isScalarValue()) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return "";
+    }
+
+    /**
+     * Mutable holder for the few fields we extract from one subtree.
+     */
+    private static final class Fields {
+        boolean present;
+        boolean hasChatId;
+        long chatId;
+        String text;
+        String callbackQueryId;
+        String callbackData;
+    }
+}
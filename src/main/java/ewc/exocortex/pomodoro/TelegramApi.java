@@ -50,9 +50,15 @@ public interface TelegramApi {
     void answerCallbackQuery(String callbackQueryId) throws IOException, InterruptedException;
 
     /**
-     * Represents a parsed Telegram Update.
+     * Represents a parsed Telegram Update; {@code updateId} is 0 when unknown.
      */
-    record Update(long chatId, String text, String callbackQueryId, String callbackData) {
+    record Update(long chatId, String text, String callbackQueryId, String callbackData, long updateId) {
+
+        public Update(final long chatId, final String text, final String callbackQueryId,
+                final String callbackData) {
+            this(chatId, text, callbackQueryId, callbackData, 0L);
+        }
+
         public boolean isCommand() {
             return text != null && text.startsWith("/");
         }
@@ -0,0 +1,35 @@
+package ewc.exocortex.pomodoro;
+
+import java.io.IOException;
+
+/**
+ * A Bot API call that Telegram answered with a non-200 status.
+ */
+public class TelegramApiException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final int retryAfterSeconds;
+
+    public TelegramApiException(final int statusCode, final String body, final int retryAfterSeconds) {
+        super("Telegram API error: " + statusCode + " - " + body);
+        this.statusCode = statusCode;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Returns {@code parameters.retry_after} from the error body, or 0 if absent.
+     */
+    public int retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public boolean isTooManyRequests() {
+        return statusCode == 429;
+    }
+}
@@ -4,11 +4,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
-import java.net.URI;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -16,32 +14,74 @@ import java.util.Map;
  */
 public final class TelegramService implements TelegramApi {
 
-    private static final String TELEGRAM_API_BASE = "https://api.telegram.org/bot";
+    /**
+     * How incoming webhook bodies are parsed.
+     */
+    public enum ParseMode {
+        /**
+         * Materializes the full JsonNode tree.
+         */
+        TREE,
+        /**
+         * Token-level parsing that skips unused subtrees, see {@link StreamingUpdateParser}.
+         */
+        STREAMING
+    }
 
-    private final String botToken;
-    private final HttpClient httpClient;
+    private final TelegramTransport transport;
     private final ObjectMapper objectMapper;
+    private final ParseMode parseMode;
+    private final StreamingUpdateParser streamingParser;
+    private final OutboundPayloadCache payloadCache;
 
     public TelegramService(final String botToken, final HttpClient httpClient, final ObjectMapper objectMapper) {
-        this.botToken = botToken;
-        this.httpClient = httpClient;
+        this(botToken, httpClient, objectMapper, ParseMode.TREE);
+    }
+
+    public TelegramService(final String botToken, final HttpClient httpClient, final ObjectMapper objectMapper,
+            final ParseMode parseMode) {
+        this(new TelegramTransport(httpClient, TelegramTransport.DEFAULT_API_BASE, botToken,
+                TelegramTransport.DEFAULT_REQUEST_TIMEOUT), objectMapper, parseMode);
+    }
+
+    public TelegramService(final TelegramTransport transport, final ObjectMapper objectMapper,
+            final ParseMode parseMode) {
+        this.transport = transport;
         this.objectMapper = objectMapper;
+        this.parseMode = parseMode;
+        this.streamingParser = new StreamingUpdateParser(objectMapper.getFactory());
+        this.payloadCache = new OutboundPayloadCache(objectMapper);
     }
 
     /**
      * Creates a TelegramService using the TELEGRAM_BOT_TOKEN environment variable.
+     * The optional TELEGRAM_PARSE_MODE variable ({@code tree} or {@code streaming})
+     * selects the update parser; defaults to {@code tree}. Transport settings are
+     * described in {@link TelegramTransport#fromEnvironment(String)}.
      */
     public static TelegramService fromEnvironment() {
         final String token = System.getenv("TELEGRAM_BOT_TOKEN");
         if (token == null || token.isBlank()) {
             throw new IllegalStateException("TELEGRAM_BOT_TOKEN environment variable is not set");
         }
-        return new TelegramService(token, HttpClient.newHttpClient(), new ObjectMapper());
+        final String mode = System.getenv("TELEGRAM_PARSE_MODE");
+        final ParseMode parseMode = mode == null || mode.isBlank()
+                ? ParseMode.TREE
+                : ParseMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        return new TelegramService(TelegramTransport.fromEnvironment(token), new ObjectMapper(), parseMode);
     }
 
     @Override
     public Update parseUpdate(final String json) throws IOException {
+        if (parseMode == ParseMode.STREAMING) {
+            return streamingParser.parse(json);
+        }
+        return parseTree(json);
+    }
+
+    private Update parseTree(final String json) throws IOException {
         final JsonNode root = objectMapper.readTree(json);
+        final long updateId = root.path("update_id").asLong();
 
         // Check for callback query first
         final JsonNode callbackQuery = root.get("callback_query");
@@ -49,7 +89,7 @@ public final class TelegramService implements TelegramApi {
             final long chatId = callbackQuery.get("message").get("chat").get("id").asLong();
             final String callbackQueryId = callbackQuery.get("id").asText();
             final String callbackData = callbackQuery.get("data").asText();
-            return new Update(chatId, null, callbackQueryId, callbackData);
+            return new Update(chatId, null, callbackQueryId, callbackData, updateId);
         }
 
         // Check for regular message
@@ -61,57 +101,32 @@ public final class TelegramService implements TelegramApi {
         final long chatId = message.get("chat").get("id").asLong();
         final String text = message.has("text") ? message.get("text").asText() : "";
 
-        return new Update(chatId, text, null, null);
+        return new Update(chatId, text, null, null, updateId);
     }
 
     @Override
     public void sendMessage(final long chatId, final String text) throws IOException, InterruptedException {
-        final String url = TELEGRAM_API_BASE + botToken + "/sendMessage";
-
-        final String payload = objectMapper.writeValueAsString(
-                Map.of("chat_id", chatId, "text", text));
-
-        sendApiRequest(url, payload);
+        transport.post(TelegramTransport.Method.SEND_MESSAGE, payloadCache.message(chatId, text));
     }
 
     @Override
     public void sendMessageWithKeyboard(final long chatId, final String text, final List<Button> buttons)
             throws IOException, InterruptedException {
-        final String url = TELEGRAM_API_BASE + botToken + "/sendMessage";
-
-        // Build inline keyboard - one button per row for simplicity
-        final List<List<Map<String, String>>> keyboard = buttons.stream()
-                .map(b -> List.of(Map.of("text", b.text(), "callback_data", b.callbackData())))
-                .toList();
-
-        final Map<String, Object> payload = Map.of(
-                "chat_id", chatId,
-                "text", text,
-                "reply_markup", Map.of("inline_keyboard", keyboard));
-
-        sendApiRequest(url, objectMapper.writeValueAsString(payload));
+        transport.post(TelegramTransport.Method.SEND_MESSAGE, payloadCache.messageWithKeyboard(chatId, text, buttons));
     }
 
     @Override
     public void answerCallbackQuery(final String callbackQueryId) throws IOException, InterruptedException {
-        final String url = TELEGRAM_API_BASE + botToken + "/answerCallbackQuery";
-
-        final String payload = objectMapper.writeValueAsString(
+        final byte[] payload = objectMapper.writeValueAsBytes(
                 Map.of("callback_query_id", callbackQueryId));
 
-        sendApiRequest(url, payload);
+        transport.post(TelegramTransport.Method.ANSWER_CALLBACK_QUERY, payload);
     }
 
-    private void sendApiRequest(final String url, final String payload) throws IOException, InterruptedException {
-        final HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(payload))
-                .build();
-
-        final HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 200) {
-            throw new IOException("Telegram API error: " + response.statusCode() + " - " + response.body());
-        }
+    /**
+     * Opens the Bot API connection ahead of the first reply, see {@link TelegramTransport#warmUp()}.
+     */
+    public void warmUp() throws InterruptedException {
+        transport.warmUp();
     }
 }
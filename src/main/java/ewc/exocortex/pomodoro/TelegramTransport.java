@@ -0,0 +1,268 @@
+package ewc.exocortex.pomodoro;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP transport for Telegram Bot API calls.
+ * <p>
+ * Endpoint URIs are built once, request bodies are sent as byte arrays and the
+ * body of a successful (200) response is discarded without being buffered or
+ * decoded. The default client negotiates HTTP/2, so all calls are multiplexed
+ * over one kept-alive connection; {@link #warmUp()} opens it ahead of the first
+ * real call.
+ * <p>
+ * The client keeps a single HTTP/2 connection per host and multiplexes every call
+ * over it, so the share of responses that arrived over HTTP/2 is the share that
+ * reused that connection. {@link #metrics()} counts them, and a summary is logged
+ * every {@value #METRICS_LOG_INTERVAL} requests.
+ */
+public final class TelegramTransport {
+
+    public static final String DEFAULT_API_BASE = "https://api.telegram.org";
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(3);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    /** Keeps a warm-up well inside the 10 s Lambda init phase. */
+    static final Duration WARM_UP_TIMEOUT = Duration.ofSeconds(2);
+    static final int METRICS_LOG_INTERVAL = 100;
+
+    /**
+     * Bot API methods used by the bot.
+     */
+    public enum Method {
+        SEND_MESSAGE("sendMessage"),
+        ANSWER_CALLBACK_QUERY("answerCallbackQuery"),
+        GET_ME("getMe"),
+        GET_UPDATES("getUpdates");
+
+        private final String path;
+
+        Method(final String path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * Returns null for 200 responses (body discarded) and the decoded error body otherwise.
+     */
+    private static final HttpResponse.BodyHandler<String> DISCARD_ON_SUCCESS = responseInfo ->
+            responseInfo.statusCode() == 200
+                    ? HttpResponse.BodySubscribers.replacing(null)
+                    : HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8);
+
+    /**
+     * Returns the raw body of 200 responses and the decoded error body otherwise.
+     */
+    private static final HttpResponse.BodyHandler<byte[]> BYTES_ON_SUCCESS = responseInfo ->
+            responseInfo.statusCode() == 200
+                    ? HttpResponse.BodySubscribers.ofByteArray()
+                    : HttpResponse.BodySubscribers.mapping(
+                            HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                            error -> error.getBytes(StandardCharsets.UTF_8));
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final Map<Method, URI> endpoints = new EnumMap<>(Method.class);
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder http2Responses = new LongAdder();
+
+    public TelegramTransport(final HttpClient httpClient, final String apiBase, final String botToken,
+            final Duration requestTimeout) {
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+        final String base = (apiBase.endsWith("/") ? apiBase : apiBase + "/") + "bot" + botToken + "/";
+        for (final Method method : Method.values()) {
+            endpoints.put(method, URI.create(base + method.path));
+        }
+    }
+
+    /**
+     * Creates a transport from environment variables.
+     * TELEGRAM_API_BASE overrides the API host (e.g. for a local stand-in);
+     * TELEGRAM_CONNECT_TIMEOUT_MS and TELEGRAM_REQUEST_TIMEOUT_MS override the timeouts.
+     */
+    public static TelegramTransport fromEnvironment(final String botToken) {
+        final String apiBase = System.getenv("TELEGRAM_API_BASE");
+        return new TelegramTransport(
+                newHttpClient(durationFromEnvironment("TELEGRAM_CONNECT_TIMEOUT_MS", DEFAULT_CONNECT_TIMEOUT)),
+                apiBase == null || apiBase.isBlank() ? DEFAULT_API_BASE : apiBase,
+                botToken,
+                durationFromEnvironment("TELEGRAM_REQUEST_TIMEOUT_MS", DEFAULT_REQUEST_TIMEOUT));
+    }
+
+    /**
+     * Creates an HTTP/2 client with an explicit connect timeout.
+     */
+    public static HttpClient newHttpClient(final Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /**
+     * Posts a JSON body to the given Bot API method.
+     *
+     * @throws TelegramApiException if Telegram answers with a non-200 status
+     * @throws IOException          if the call fails
+     */
+    public void post(final Method method, final byte[] body) throws IOException, InterruptedException {
+        send(HttpRequest.newBuilder(endpoints.get(method))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build());
+    }
+
+    /**
+     * Posts a JSON body and returns the response body, for methods whose result is needed
+     * (e.g. getUpdates). The timeout must cover any server-side long-poll wait.
+     *
+     * @throws TelegramApiException if Telegram answers with a non-200 status
+     * @throws IOException          if the call fails
+     */
+    public byte[] fetch(final Method method, final byte[] body, final Duration timeout)
+            throws IOException, InterruptedException {
+        final HttpResponse<byte[]> response = record(() -> httpClient.send(
+                HttpRequest.newBuilder(endpoints.get(method))
+                        .timeout(timeout)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                        .build(), BYTES_ON_SUCCESS));
+
+        if (response.statusCode() != 200) {
+            final String error = new String(response.body(), StandardCharsets.UTF_8);
+            throw new TelegramApiException(response.statusCode(), error, retryAfter(error));
+        }
+        return response.body();
+    }
+
+    /**
+     * Opens the connection (TLS handshake, HTTP/2 negotiation) with a cheap getMe call
+     * and logs the negotiated protocol. Failures are logged and otherwise ignored; the
+     * next real call simply connects itself.
+     */
+    public void warmUp() throws InterruptedException {
+        final long start = System.nanoTime();
+        try {
+            final HttpResponse<String> response = send(HttpRequest.newBuilder(endpoints.get(Method.GET_ME))
+                    .timeout(requestTimeout.compareTo(WARM_UP_TIMEOUT) < 0 ? requestTimeout : WARM_UP_TIMEOUT)
+                    .GET()
+                    .build());
+            System.err.println("Telegram connection warmed up over " + response.version() + " in "
+                    + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+        } catch (IOException e) {
+            System.err.println("Telegram warm-up failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a snapshot of the transport counters.
+     */
+    public Metrics metrics() {
+        return new Metrics(requests.sum(), failures.sum(), http2Responses.sum());
+    }
+
+    private HttpResponse<String> send(final HttpRequest request) throws IOException, InterruptedException {
+        final HttpResponse<String> response = record(() -> httpClient.send(request, DISCARD_ON_SUCCESS));
+
+        if (response.statusCode() != 200) {
+            throw new TelegramApiException(response.statusCode(), response.body(), retryAfter(response.body()));
+        }
+        return response;
+    }
+
+    /**
+     * Performs the call and counts it, its failure and the protocol of its response.
+     */
+    private <T> HttpResponse<T> record(final Call<T> call) throws IOException, InterruptedException {
+        requests.increment();
+        final HttpResponse<T> response;
+        try {
+            response = call.send();
+        } catch (IOException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            if (requests.sum() % METRICS_LOG_INTERVAL == 0) {
+                System.err.println("Telegram transport: " + metrics());
+            }
+        }
+        if (response.version() == HttpClient.Version.HTTP_2) {
+            http2Responses.increment();
+        }
+        if (response.statusCode() != 200) {
+            failures.increment();
+        }
+        return response;
+    }
+
+    /**
+     * Extracts {@code parameters.retry_after} from an error body; 0 if it is absent or unreadable.
+     */
+    static int retryAfter(final String errorBody) {
+        if (errorBody == null || !errorBody.contains("retry_after")) {
+            return 0;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(errorBody)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return 0;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_OBJECT && "parameters".equals(name)) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        final String parameter = parser.currentName();
+                        final JsonToken token = parser.nextToken();
+                        if ("retry_after".equals(parameter) && token.isNumeric()) {
+                            return parser.getIntValue();
+                        }
+                        parser.skipChildren();
+                    }
+                    return 0;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            // Not JSON; treat as no hint
+        }
+        return 0;
+    }
+
+    private static Duration durationFromEnvironment(final String name, final Duration defaultValue) {
+        final String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Duration.ofMillis(Long.parseLong(value.trim()));
+    }
+
+    @FunctionalInterface
+    private interface Call<T> {
+        HttpResponse<T> send() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Transport counters. HTTP/2 responses are those served over the shared, reused connection.
+     *
+     * @param requests       calls made, including warm-up
+     * @param failures       calls that failed or were answered with a non-200 status
+     * @param http2Responses responses that arrived over HTTP/2
+     */
+    public record Metrics(long requests, long failures, long http2Responses) {
+    }
+}
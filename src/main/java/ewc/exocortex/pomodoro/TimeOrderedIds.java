@@ -0,0 +1,83 @@
+package ewc.exocortex.pomodoro;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates UUIDv7-style identifiers that sort by creation time.
+ * <p>
+ * Layout: 48-bit Unix epoch millis, version 7, a 12-bit sequence, the RFC 4122
+ * variant and 62 random bits. The canonical string form has fixed width, so IDs
+ * compare lexicographically in the same order as they were generated. Within one
+ * generator IDs are strictly increasing: the sequence starts at a random point
+ * each millisecond and, if it runs out, borrows the next millisecond.
+ * <p>
+ * Random bits come from {@link SecureRandom}, which is reseeded after a SnapStart
+ * restore; generators restored from the same snapshot share their sequence state
+ * but not their random bits.
+ */
+public final class TimeOrderedIds {
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int SEQUENCE_LIMIT = 1 << SEQUENCE_BITS;
+    // Random start leaves at least half the sequence space for the same millisecond
+    private static final int SEQUENCE_SEED_LIMIT = SEQUENCE_LIMIT / 2;
+
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+
+    private long lastMillis = -1;
+    private int sequence;
+
+    public TimeOrderedIds() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor for testing with a controllable millisecond clock.
+     */
+    TimeOrderedIds(final LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the next ID in canonical string form.
+     */
+    public String next() {
+        final long millis;
+        final int seq;
+        synchronized (this) {
+            final long now = clock.getAsLong();
+            if (now > lastMillis) {
+                lastMillis = now;
+                sequence = random.nextInt(SEQUENCE_SEED_LIMIT);
+            } else if (++sequence == SEQUENCE_LIMIT) {
+                // Clock went back or sequence exhausted: continue in the next millisecond
+                lastMillis++;
+                sequence = 0;
+            }
+            millis = lastMillis;
+            seq = sequence;
+        }
+
+        final long mostSignificant = (millis << 16) | (0x7L << 12) | seq;
+        final long leastSignificant = (random.nextLong() >>> 2) | 0x8000_0000_0000_0000L;
+        return new UUID(mostSignificant, leastSignificant).toString();
+    }
+
+    /**
+     * Returns the smallest ID that any generator could produce for the given millisecond.
+     * Useful as an exclusive upper or inclusive lower bound in range queries.
+     */
+    public static String lowerBound(final long epochMillis) {
+        return new UUID((epochMillis << 16) | (0x7L << 12), 0x8000_0000_0000_0000L).toString();
+    }
+
+    /**
+     * Extracts the creation time of an ID produced by this class.
+     */
+    public static long epochMillis(final String id) {
+        return UUID.fromString(id).getMostSignificantBits() >>> 16;
+    }
+}
@@ -5,6 +5,21 @@ package ewc.exocortex.pomodoro;
  */
 public interface TimerService {
 
+    /**
+     * Returns a fresh schedule name for a timer of this chat, so the name can be
+     * persisted before the timer exists.
+     */
+    String newScheduleName(long chatId);
+
+    /**
+     * Creates a one-time schedule under the given name that will trigger after the specified duration.
+     *
+     * @param scheduleName a name from {@link #newScheduleName(long)}
+     * @param chatId       the chat ID to associate with the timer
+     * @param minutes      the duration in minutes
+     */
+    void createTimer(String scheduleName, long chatId, int minutes);
+
     /**
      * Creates a one-time schedule that will trigger after the specified duration.
      *
@@ -12,7 +27,11 @@ public interface TimerService {
      * @param minutes the duration in minutes
      * @return the schedule name (for cancellation)
      */
-    String createTimer(long chatId, int minutes);
+    default String createTimer(final long chatId, final int minutes) {
+        final String scheduleName = newScheduleName(chatId);
+        createTimer(scheduleName, chatId, minutes);
+        return scheduleName;
+    }
 
     /**
      * Cancels an existing timer.
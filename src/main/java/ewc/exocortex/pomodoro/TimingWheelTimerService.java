@@ -0,0 +1,396 @@
+package ewc.exocortex.pomodoro;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process TimerService for self-hosted deployments, built on a hierarchical timing wheel.
+ * <p>
+ * The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots; level {@code n}
+ * covers {@code SLOTS^(n+1)} ticks. A timer goes into the slot of the lowest level
+ * that reaches its deadline and moves down a level each time that slot comes due,
+ * so creating and cancelling are O(1) list operations. Expired timers are handed
+ * to the {@link Listener} on a dedicated executor, never on the ticker thread.
+ * <p>
+ * Pending timers are recorded in an append-only journal ({@code + name chatId deadline}
+ * and {@code - name} lines), which {@link #start()} replays and compacts. Timers that
+ * expired while the process was down fire right after the restart. An expired timer is
+ * only journaled as removed once the listener has returned, so delivery is at-least-once:
+ * a crash in between fires it again after the restart. Journal writes are not fsynced:
+ * timers survive a process restart, not a power loss.
+ */
+public final class TimingWheelTimerService implements TimerService, AutoCloseable {
+
+    static final int LEVELS = 4;
+    static final int SLOTS = 64;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+    private static final int COMPACT_THRESHOLD = 10_000;
+
+    /**
+     * Receives expired timers.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void timerDone(long chatId) throws Exception;
+    }
+
+    /**
+     * A pending timer; a node of its slot's doubly linked list.
+     */
+    private static final class Timer {
+        final String name;
+        final long chatId;
+        final long deadlineMillis;
+        final long deadlineTick;
+        Timer prev;
+        Timer next;
+        Timer[] slot;
+
+        Timer(final String name, final long chatId, final long deadlineMillis, final long deadlineTick) {
+            this.name = name;
+            this.chatId = chatId;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final Path journal;
+    private final Listener listener;
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final ExecutorService executor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Each slot is a one-element array holding the head of its list
+    private final Timer[][][] wheel = new Timer[LEVELS][SLOTS][1];
+    private final Map<String, Timer> timers = new HashMap<>();
+    /** Expired timers whose listener call has not returned yet; still pending in the journal. */
+    private final Map<String, Timer> firing = new HashMap<>();
+    private long currentTick;
+    private BufferedWriter journalWriter;
+    private long journalLines;
+    private Thread ticker;
+
+    public TimingWheelTimerService(final Path journal, final Listener listener) {
+        this(journal, listener, DEFAULT_TICK, System::currentTimeMillis,
+                Executors.newSingleThreadExecutor(Thread.ofPlatform().name("timer-done").daemon().factory()));
+    }
+
+    /**
+     * Constructor for testing with a controllable millisecond clock and executor.
+     */
+    TimingWheelTimerService(final Path journal, final Listener listener, final Duration tick,
+            final LongSupplier clock, final ExecutorService executor) {
+        this.journal = journal;
+        this.listener = listener;
+        this.tickMillis = Math.max(1, tick.toMillis());
+        this.clock = clock;
+        this.executor = executor;
+        this.currentTick = clock.getAsLong() / tickMillis;
+    }
+
+    /**
+     * Creates a service journaling to TIMER_JOURNAL, or to pomodoro-timers.journal in the working directory.
+     */
+    public static TimingWheelTimerService fromEnvironment(final Listener listener) {
+        final String path = System.getenv("TIMER_JOURNAL");
+        return new TimingWheelTimerService(
+                Path.of(path == null || path.isBlank() ? "pomodoro-timers.journal" : path.trim()), listener);
+    }
+
+    /**
+     * Restores pending timers from the journal and starts the ticker thread.
+     */
+    public TimingWheelTimerService start() throws IOException {
+        recover();
+        synchronized (this) {
+            if (ticker == null) {
+                ticker = Thread.ofPlatform().name("timer-wheel").daemon().start(this::run);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Restores pending timers from the journal without starting the ticker.
+     */
+    synchronized void recover() throws IOException {
+        if (journalWriter != null) {
+            return;
+        }
+        final Map<String, String[]> pending = new LinkedHashMap<>();
+        if (Files.exists(journal)) {
+            for (final String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+                final String[] fields = line.split(" ");
+                if (fields.length == 4 && "+".equals(fields[0])) {
+                    pending.put(fields[1], fields);
+                } else if (fields.length == 2 && "-".equals(fields[0])) {
+                    pending.remove(fields[1]);
+                }
+                // Anything else is a torn last line
+            }
+        }
+
+        for (final String[] fields : pending.values()) {
+            final long deadline = Long.parseLong(fields[3]);
+            final Timer timer = new Timer(fields[1], Long.parseLong(fields[2]), deadline,
+                    Math.ceilDiv(deadline, tickMillis));
+            timers.put(timer.name, timer);
+            // Already due (or recovered after its deadline): fire on the next tick
+            insert(timer, currentTick + 1);
+        }
+        compactJournal();
+    }
+
+    @Override
+    public String newScheduleName(final long chatId) {
+        return "pomodoro-" + chatId + "-" + clock.getAsLong() + "-" + sequence.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the service has not been started (or recovered) or is closed,
+     *                               since the timer could not be journaled
+     */
+    @Override
+    public void createTimer(final String name, final long chatId, final int minutes) {
+        final long deadline = clock.getAsLong() + TimeUnit.MINUTES.toMillis(minutes);
+        final Timer timer = new Timer(name, chatId, deadline, Math.ceilDiv(deadline, tickMillis));
+        synchronized (this) {
+            if (journalWriter == null) {
+                throw new IllegalStateException("Timer service is not started; call start() first");
+            }
+            timers.put(name, timer);
+            // Already due (or recovered after its deadline): fire on the next tick
+            insert(timer, currentTick + 1);
+            journal("+ " + name + " " + chatId + " " + deadline);
+            flushJournal();
+        }
+    }
+
+    @Override
+    public void cancelTimer(final String scheduleName) {
+        if (scheduleName == null || scheduleName.isBlank()) {
+            return;
+        }
+        synchronized (this) {
+            final Timer timer = timers.remove(scheduleName);
+            if (timer != null) {
+                unlink(timer);
+                // After close the removal is lost and the timer fires on restart, which the handler ignores
+                if (journalWriter != null) {
+                    journal("- " + scheduleName);
+                    flushJournal();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of pending timers.
+     */
+    public synchronized int pending() {
+        return timers.size();
+    }
+
+    /**
+     * Advances the wheel to the given time and hands every expired timer to the executor.
+     *
+     * @return the number of timers that expired
+     */
+    int advanceTo(final long nowMillis) {
+        final List<Timer> expired = new ArrayList<>();
+        synchronized (this) {
+            final long target = nowMillis / tickMillis;
+            while (currentTick < target) {
+                currentTick++;
+                cascade();
+                final Timer[] slot = wheel[0][(int) (currentTick & SLOT_MASK)];
+                for (Timer timer = slot[0]; timer != null; ) {
+                    final Timer next = timer.next;
+                    unlink(timer);
+                    timers.remove(timer.name);
+                    firing.put(timer.name, timer);
+                    expired.add(timer);
+                    timer = next;
+                }
+            }
+        }
+        for (final Timer timer : expired) {
+            executor.execute(() -> fire(timer));
+        }
+        return expired.size();
+    }
+
+    /**
+     * Stops the ticker and the executor and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        final Thread thread;
+        synchronized (this) {
+            thread = ticker;
+            ticker = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+        executor.shutdown();
+        synchronized (this) {
+            if (journalWriter != null) {
+                journalWriter.close();
+                journalWriter = null;
+            }
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                final long now = clock.getAsLong();
+                advanceTo(now);
+                Thread.sleep(tickMillis - now % tickMillis);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Timer wheel tick failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void fire(final Timer timer) {
+        try {
+            listener.timerDone(timer.chatId);
+        } catch (Exception e) {
+            System.err.println("Timer " + timer.name + " failed: " + e.getMessage());
+        }
+        synchronized (this) {
+            // After close the removal is lost and the timer fires again on restart
+            if (firing.remove(timer.name) != null && journalWriter != null) {
+                journal("- " + timer.name);
+                flushJournal();
+            }
+        }
+    }
+
+    /**
+     * Moves the timers of every higher-level slot that has just come due one level down.
+     * Higher levels go first, so a timer can fall through several levels within one tick.
+     */
+    private void cascade() {
+        int top = 0;
+        while (top < LEVELS - 1 && (currentTick & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0) {
+            top++;
+        }
+        for (int level = top; level >= 1; level--) {
+            final Timer[] slot = wheel[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+            Timer timer = slot[0];
+            slot[0] = null;
+            while (timer != null) {
+                final Timer next = timer.next;
+                insert(timer, currentTick);
+                timer = next;
+            }
+        }
+    }
+
+    /**
+     * Links the timer into the slot for its deadline, but no earlier than {@code earliestTick}.
+     */
+    private void insert(final Timer timer, final long earliestTick) {
+        long deadline = Math.max(timer.deadlineTick, earliestTick);
+        final long maxSpan = 1L << (SLOT_BITS * LEVELS);
+        // Beyond the top level: park at the farthest slot and re-place on cascade
+        deadline = Math.min(deadline, currentTick + maxSpan - 1);
+
+        final long delta = deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        final Timer[] slot = wheel[level][(int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = slot[0];
+        if (slot[0] != null) {
+            slot[0].prev = timer;
+        }
+        slot[0] = timer;
+    }
+
+    private static void unlink(final Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else if (timer.slot != null) {
+            timer.slot[0] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.slot = null;
+    }
+
+    private void journal(final String line) {
+        try {
+            journalWriter.write(line);
+            journalWriter.newLine();
+            if (++journalLines > COMPACT_THRESHOLD && journalLines > 4L * timers.size()) {
+                compactJournal();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write timer journal", e);
+        }
+    }
+
+    /**
+     * Replaces the journal with one line per pending timer, then continues appending to it.
+     */
+    private void compactJournal() throws IOException {
+        if (journalWriter != null) {
+            journalWriter.close();
+        }
+        final Path tmp = journal.resolveSibling(journal.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (final Map<String, Timer> live : List.of(timers, firing)) {
+                for (final Timer timer : live.values()) {
+                    writer.write("+ " + timer.name + " " + timer.chatId + " " + timer.deadlineMillis);
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(tmp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalWriter = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalLines = timers.size() + firing.size();
+    }
+
+    private void flushJournal() {
+        try {
+            journalWriter.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write timer journal", e);
+        }
+    }
+}
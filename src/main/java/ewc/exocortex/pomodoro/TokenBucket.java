@@ -0,0 +1,57 @@
+package ewc.exocortex.pomodoro;
+
+/**
+ * Token bucket that hands out reservations instead of rejecting.
+ * <p>
+ * A reservation always takes a token, letting the balance go negative; the
+ * returned delay is how long the caller has to wait before its token is
+ * actually available. Concurrent callers are thereby queued in arrival order.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(final double capacity, final double tokensPerSecond, final long nowNanos) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Reserves one token.
+     *
+     * @return nanoseconds to wait before the reserved token may be used; 0 if available now
+     */
+    synchronized long reserve(final long nowNanos) {
+        refill(nowNanos);
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    /**
+     * Gives back a reservation that will not be used.
+     */
+    synchronized void release() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /**
+     * True when the bucket has refilled completely, i.e. it has been idle.
+     */
+    synchronized boolean isFull(final long nowNanos) {
+        refill(nowNanos);
+        return tokens >= capacity;
+    }
+
+    private void refill(final long nowNanos) {
+        final long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
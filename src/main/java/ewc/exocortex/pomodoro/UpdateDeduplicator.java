@@ -0,0 +1,147 @@
+package ewc.exocortex.pomodoro;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Recognizes Telegram redeliveries of an update that was already taken on.
+ * <p>
+ * Telegram retries a webhook it considers failed (e.g. after a slow invocation) with the
+ * same {@code update_id}. The first delivery claims the ID in a bounded in-container LRU
+ * and with a conditional PutItem into the {@value #TABLE_NAME} table; a retry that lands
+ * on another container loses that put. A claim is only a {@link #LEASE lease} at first:
+ * once the update has been {@link #processed(long) processed} it is extended to
+ * {@link #RETENTION}, after which DynamoDB TTL removes the item. If the invocation dies
+ * first (e.g. a Lambda timeout), the lease runs out and a redelivery takes the update over.
+ * <p>
+ * The table is an optimization, not a gate: if it cannot be reached the update is processed.
+ */
+public final class UpdateDeduplicator {
+
+    static final String TABLE_NAME = "PomodoroProcessedUpdates";
+    static final String PK = "updateId";
+    static final String EXPIRES_AT = "expiresAt";
+    static final int MAX_REMEMBERED = 4096;
+    /** Matches the function timeout in template.yaml: a claim outlives the invocation that made it. */
+    static final Duration LEASE = Duration.ofSeconds(30);
+    /** Telegram gives up on an undelivered update after a day. */
+    static final Duration RETENTION = Duration.ofHours(24);
+
+    private final DynamoDbClient dynamoDb;
+    private final LongSupplier clock;
+    /** Update ID to the epoch millis its claim expires at. */
+    private final Map<Long, Long> remembered = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Long> eldest) {
+            return size() > MAX_REMEMBERED;
+        }
+    };
+
+    /**
+     * @param dynamoDb the client for the processed-updates table, or null to deduplicate within this process only
+     */
+    public UpdateDeduplicator(final DynamoDbClient dynamoDb) {
+        this(dynamoDb, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor for testing with a controllable millisecond clock.
+     */
+    UpdateDeduplicator(final DynamoDbClient dynamoDb, final LongSupplier clock) {
+        this.dynamoDb = dynamoDb;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a deduplicator backed by the processed-updates table, using the default DynamoDB client.
+     */
+    public static UpdateDeduplicator create() {
+        return new UpdateDeduplicator(DynamoDbClient.create());
+    }
+
+    /**
+     * Claims the update for {@link #LEASE}.
+     *
+     * @param updateId the Telegram update_id; 0 (unknown) is never treated as a duplicate
+     * @return true on the first delivery or when an earlier claim has lapsed,
+     *         false if the update is being or has been processed
+     */
+    public boolean firstDelivery(final long updateId) {
+        if (updateId <= 0) {
+            return true;
+        }
+        final long now = clock.getAsLong();
+        synchronized (remembered) {
+            final Long expiresAt = remembered.get(updateId);
+            if (expiresAt != null && expiresAt > now) {
+                return false;
+            }
+            remembered.put(updateId, now + LEASE.toMillis());
+        }
+        if (dynamoDb == null) {
+            return true;
+        }
+
+        try {
+            dynamoDb.putItem(PutItemRequest.builder()
+                    .tableName(TABLE_NAME)
+                    .item(item(updateId, now + LEASE.toMillis()))
+                    .conditionExpression("attribute_not_exists(#id) OR #expiresAt < :now")
+                    .expressionAttributeNames(Map.of("#id", PK, "#expiresAt", EXPIRES_AT))
+                    .expressionAttributeValues(Map.of(":now", seconds(now)))
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            // Another container holds or has completed this update
+            return false;
+        } catch (RuntimeException e) {
+            System.err.println("Processed-updates table unavailable, processing update " + updateId + ": "
+                    + e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Turns the claim into a record that lasts {@link #RETENTION}, so later redeliveries are dropped.
+     * Failures are logged; the lease then simply runs out.
+     */
+    public void processed(final long updateId) {
+        if (updateId <= 0) {
+            return;
+        }
+        final long expiresAt = clock.getAsLong() + RETENTION.toMillis();
+        synchronized (remembered) {
+            remembered.put(updateId, expiresAt);
+        }
+        if (dynamoDb == null) {
+            return;
+        }
+
+        try {
+            dynamoDb.putItem(PutItemRequest.builder()
+                    .tableName(TABLE_NAME)
+                    .item(item(updateId, expiresAt))
+                    .build());
+        } catch (RuntimeException e) {
+            System.err.println("Failed to record processed update " + updateId + ": " + e.getMessage());
+        }
+    }
+
+    private static Map<String, AttributeValue> item(final long updateId, final long expiresAtMillis) {
+        return Map.of(
+                PK, AttributeValue.builder().n(String.valueOf(updateId)).build(),
+                EXPIRES_AT, seconds(expiresAtMillis));
+    }
+
+    private static AttributeValue seconds(final long epochMillis) {
+        return AttributeValue.builder().n(String.valueOf(TimeUnit.MILLISECONDS.toSeconds(epochMillis))).build();
+    }
+}
@@ -0,0 +1,178 @@
+package ewc.exocortex.pomodoro;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Cheap checks that run on a webhook before the update is parsed.
+ * <p>
+ * When a secret is configured, the request must carry it in the
+ * {@value #SECRET_HEADER} header (set with {@code setWebhook secret_token}); anything
+ * else did not come from Telegram. The body is then scanned once, character by
+ * character and without allocating, for the update kind (the first top-level key
+ * besides {@code update_id}) and the first {@code chat.id}. Kinds the bot does not
+ * handle and chats that are not authorized are dropped right there, with no full
+ * parse and no logging. Whatever the scan cannot classify is left to the parser.
+ */
+public final class WebhookFilter {
+
+    /** Header names are compared case-insensitively. */
+    public static final String SECRET_HEADER = "x-telegram-bot-api-secret-token";
+
+    /**
+     * What to do with a webhook body.
+     */
+    public enum Verdict {
+        /** Parse and route the update. */
+        PROCESS,
+        /** An update kind the bot does not handle (edited messages, channel posts, ...). */
+        IGNORE,
+        /** A chat that is not allowed to use the bot. */
+        UNAUTHORIZED
+    }
+
+    private final byte[] secret;
+    private final SecurityService securityService;
+
+    /**
+     * @param secret          the expected secret token, or null to accept requests without one
+     * @param securityService decides which chats are authorized
+     */
+    public WebhookFilter(final String secret, final SecurityService securityService) {
+        this.secret = secret == null || secret.isBlank() ? null : secret.getBytes(StandardCharsets.UTF_8);
+        this.securityService = securityService;
+    }
+
+    /**
+     * Creates a filter expecting the TELEGRAM_WEBHOOK_SECRET token, if that variable is set.
+     */
+    public static WebhookFilter fromEnvironment(final SecurityService securityService) {
+        return new WebhookFilter(System.getenv("TELEGRAM_WEBHOOK_SECRET"), securityService);
+    }
+
+    /**
+     * Returns true if a secret token is configured.
+     */
+    public boolean requiresSecret() {
+        return secret != null;
+    }
+
+    /**
+     * Checks the value of the {@value #SECRET_HEADER} header (null if absent), in constant time.
+     */
+    public boolean acceptsSecret(final String headerValue) {
+        if (secret == null) {
+            return true;
+        }
+        return headerValue != null && MessageDigest.isEqual(secret, headerValue.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Classifies a webhook body without parsing it.
+     */
+    public Verdict check(final CharSequence body) {
+        final int length = body.length();
+        int depth = 0;
+        int chatDepth = -1;
+        boolean kindSeen = false;
+
+        int i = 0;
+        while (i < length) {
+            final char c = body.charAt(i);
+            if (c == '"') {
+                final int end = endOfString(body, i + 1);
+                if (end < 0) {
+                    return Verdict.PROCESS;
+                }
+                final int colon = skipWhitespace(body, end + 1);
+                if (colon >= length || body.charAt(colon) != ':') {
+                    i = end + 1; // A string value
+                    continue;
+                }
+                final int keyStart = i + 1;
+                final int keyLength = end - keyStart;
+                final int value = skipWhitespace(body, colon + 1);
+                if (depth == 1 && !kindSeen && !isKey(body, keyStart, keyLength, "update_id")) {
+                    if (!isKey(body, keyStart, keyLength, "message")
+                            && !isKey(body, keyStart, keyLength, "callback_query")) {
+                        return Verdict.IGNORE;
+                    }
+                    kindSeen = true;
+                } else if (isKey(body, keyStart, keyLength, "chat") && value < length && body.charAt(value) == '{') {
+                    chatDepth = depth + 1;
+                } else if (depth == chatDepth && isKey(body, keyStart, keyLength, "id")) {
+                    return authorize(body, value);
+                }
+                i = value;
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (depth == chatDepth) {
+                    chatDepth = -1;
+                }
+                depth--;
+            }
+            i++;
+        }
+        return Verdict.PROCESS;
+    }
+
+    private Verdict authorize(final CharSequence body, final int start) {
+        final int length = body.length();
+        int i = start;
+        final boolean negative = i < length && body.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long chatId = 0;
+        final int digits = i;
+        while (i < length && body.charAt(i) >= '0' && body.charAt(i) <= '9') {
+            if (i - digits >= 18) {
+                return Verdict.PROCESS; // Not a chat ID; let the parser judge
+            }
+            chatId = chatId * 10 + (body.charAt(i) - '0');
+            i++;
+        }
+        if (i == digits) {
+            return Verdict.PROCESS;
+        }
+        return securityService.isAuthorized(negative ? -chatId : chatId) ? Verdict.PROCESS : Verdict.UNAUTHORIZED;
+    }
+
+    /**
+     * Returns the index of the quote closing a string that starts at {@code from}, or -1.
+     */
+    private static int endOfString(final CharSequence body, final int from) {
+        for (int i = from; i < body.length(); i++) {
+            final char c = body.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(final CharSequence body, final int from) {
+        int i = from;
+        while (i < body.length() && Character.isWhitespace(body.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isKey(final CharSequence body, final int start, final int length, final String key) {
+        if (length != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (body.charAt(start + i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
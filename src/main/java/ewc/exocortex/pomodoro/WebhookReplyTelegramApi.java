@@ -0,0 +1,91 @@
+package ewc.exocortex.pomodoro;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * TelegramApi decorator that answers a webhook with its main reply.
+ * <p>
+ * Telegram accepts one Bot API method call in the body of the webhook response.
+ * While a reply is open ({@link #beginReply()}), the first sendMessage or
+ * sendMessageWithKeyboard call is captured as that method call instead of being
+ * sent; any further calls go out over HTTP as usual. The captured reply is bound
+ * to the thread that opened it.
+ */
+public final class WebhookReplyTelegramApi implements TelegramApi {
+
+    private static final byte[] METHOD_PREFIX = "{\"method\":\"sendMessage\",".getBytes(StandardCharsets.UTF_8);
+
+    private final TelegramApi delegate;
+    private final OutboundPayloadCache payloadCache;
+    private final ThreadLocal<Reply> openReply = new ThreadLocal<>();
+
+    public WebhookReplyTelegramApi(final TelegramApi delegate, final OutboundPayloadCache payloadCache) {
+        this.delegate = delegate;
+        this.payloadCache = payloadCache;
+    }
+
+    /**
+     * Opens a reply slot for the current webhook invocation.
+     */
+    public void beginReply() {
+        openReply.set(new Reply());
+    }
+
+    /**
+     * Closes the reply slot and returns the captured method call.
+     *
+     * @return the UTF-8 JSON body for the webhook response, or null if nothing was captured
+     */
+    public byte[] takeReply() {
+        final Reply reply = openReply.get();
+        openReply.remove();
+        return reply != null ? reply.body : null;
+    }
+
+    @Override
+    public Update parseUpdate(final String json) throws IOException {
+        return delegate.parseUpdate(json);
+    }
+
+    @Override
+    public void sendMessage(final long chatId, final String text) throws IOException, InterruptedException {
+        final Reply reply = openReply.get();
+        if (reply != null && reply.body == null) {
+            reply.body = withMethod(payloadCache.message(chatId, text));
+            return;
+        }
+        delegate.sendMessage(chatId, text);
+    }
+
+    @Override
+    public void sendMessageWithKeyboard(final long chatId, final String text, final List<Button> buttons)
+            throws IOException, InterruptedException {
+        final Reply reply = openReply.get();
+        if (reply != null && reply.body == null) {
+            reply.body = withMethod(payloadCache.messageWithKeyboard(chatId, text, buttons));
+            return;
+        }
+        delegate.sendMessageWithKeyboard(chatId, text, buttons);
+    }
+
+    @Override
+    public void answerCallbackQuery(final String callbackQueryId) throws IOException, InterruptedException {
+        delegate.answerCallbackQuery(callbackQueryId);
+    }
+
+    /**
+     * Turns a sendMessage body into a webhook method call by prepending the method field.
+     */
+    private static byte[] withMethod(final byte[] payload) {
+        final byte[] body = new byte[METHOD_PREFIX.length + payload.length - 1];
+        System.arraycopy(METHOD_PREFIX, 0, body, 0, METHOD_PREFIX.length);
+        System.arraycopy(payload, 1, body, METHOD_PREFIX.length, payload.length - 1);
+        return body;
+    }
+
+    private static final class Reply {
+        byte[] body;
+    }
+}
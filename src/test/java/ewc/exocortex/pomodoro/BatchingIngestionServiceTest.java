@@ -0,0 +1,191 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BatchingIngestionService with a manual clock.
+ */
+class BatchingIngestionServiceTest {
+
+    private long now;
+    private final List<Long> sleeps = new ArrayList<>();
+    private FakeDynamoDbClient client;
+    private BatchingIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        now = 1_000_000_000L;
+        client = new FakeDynamoDbClient();
+        service = new BatchingIngestionService(client, IngestionPayloadCodec.plain(),
+                new BatchingIngestionService.Policy(100, Duration.ofSeconds(5), 4,
+                        Duration.ofMillis(50), Duration.ofMillis(150)),
+                () -> now,
+                nanos -> {
+                    sleeps.add(nanos);
+                    now += nanos;
+                });
+    }
+
+    private static IngestionPayload payload(final int i) {
+        final Instant start = Instant.parse("2025-01-01T10:00:00Z").plusSeconds(3600L * i);
+        return new IngestionPayload("Task " + i, "ученик", "Код", start, start.plusSeconds(1500), 25, "Done " + i);
+    }
+
+    @Test
+    @DisplayName("should buffer until the flush size is reached")
+    void shouldBufferUntilSize() {
+        for (int i = 0; i < 99; i++) {
+            service.ingestSession(payload(i));
+        }
+        assertTrue(client.batches.isEmpty());
+
+        service.ingestSession(payload(99));
+
+        assertEquals(List.of(25, 25, 25, 25), client.batchSizes());
+        assertEquals(0, service.buffered());
+    }
+
+    @Test
+    @DisplayName("should flush once the oldest item has waited the flush delay")
+    void shouldFlushOnTime() {
+        service.ingestSession(payload(1));
+        now += TimeUnit.SECONDS.toNanos(6);
+
+        service.ingestSession(payload(2));
+
+        assertEquals(List.of(2), client.batchSizes());
+    }
+
+    @Test
+    @DisplayName("should write a partial chunk on explicit flush")
+    void shouldFlushRemainder() {
+        service.ingestAll(List.of(payload(1), payload(2), payload(3)));
+
+        service.flush();
+
+        assertEquals(List.of(3), client.batchSizes());
+    }
+
+    @Test
+    @DisplayName("should resend unprocessed items with exponential backoff")
+    void shouldRetryUnprocessed() {
+        client.unprocessedPerCall.addAll(List.of(10, 4, 0));
+        service.ingestAll(List.of(payload(1), payload(2), payload(3), payload(4), payload(5),
+                payload(6), payload(7), payload(8), payload(9), payload(10), payload(11), payload(12)));
+
+        service.flush();
+
+        assertEquals(List.of(12, 10, 4), client.batchSizes());
+        assertEquals(List.of(TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100)), sleeps);
+    }
+
+    @Test
+    @DisplayName("should keep items buffered when they stay unprocessed")
+    void shouldKeepUnprocessedItems() {
+        client.unprocessedPerCall.addAll(List.of(3, 3, 3, 3));
+        service.ingestAll(List.of(payload(1), payload(2), payload(3)));
+
+        assertThrows(IllegalStateException.class, service::flush);
+
+        assertEquals(3, service.buffered());
+        assertEquals(List.of(TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100),
+                TimeUnit.MILLISECONDS.toNanos(150)), sleeps);
+
+        service.flush();
+        assertEquals(0, service.buffered());
+    }
+
+    @Test
+    @DisplayName("should keep the chunk buffered when the batch call fails")
+    void shouldKeepChunkOnFailure() {
+        client.failNextCall = true;
+        service.ingestAll(List.of(payload(1), payload(2), payload(3)));
+
+        assertThrows(IllegalStateException.class, service::flush);
+
+        assertEquals(3, service.buffered());
+        service.flush();
+        assertEquals(0, service.buffered());
+        assertEquals(List.of(3), client.batchSizes());
+    }
+
+    @Test
+    @DisplayName("should import sessions from a JSON Lines file")
+    void shouldImportJsonLines(@TempDir final Path dir) throws IOException {
+        final Path file = dir.resolve("sessions.jsonl");
+        final StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            lines.append(DynamoIngestionService.MAPPER.writeValueAsString(payload(i))).append('\n');
+        }
+        lines.append('\n');
+        Files.writeString(file, lines, StandardCharsets.UTF_8);
+
+        final long count = IngestionImport.importFile(file, service);
+        service.flush();
+
+        assertEquals(30, count);
+        assertEquals(List.of(25, 5), client.batchSizes());
+    }
+
+    /**
+     * Fake client that records batches, reports the last N items of a call as unprocessed
+     * and can fail the next call outright.
+     */
+    static class FakeDynamoDbClient implements DynamoDbClient {
+        final List<List<WriteRequest>> batches = new ArrayList<>();
+        final List<Integer> unprocessedPerCall = new ArrayList<>();
+        boolean failNextCall;
+
+        @Override
+        public BatchWriteItemResponse batchWriteItem(final BatchWriteItemRequest request) throws SdkException {
+            if (failNextCall) {
+                failNextCall = false;
+                throw new IllegalStateException("Connection reset");
+            }
+            final List<WriteRequest> requests = request.requestItems().get(DynamoIngestionService.TABLE_NAME);
+            assertTrue(requests.size() <= BatchingIngestionService.BATCH_SIZE);
+            batches.add(requests);
+
+            final int unprocessed = unprocessedPerCall.isEmpty() ? 0 : unprocessedPerCall.remove(0);
+            if (unprocessed == 0) {
+                return BatchWriteItemResponse.builder().unprocessedItems(Map.of()).build();
+            }
+            return BatchWriteItemResponse.builder()
+                    .unprocessedItems(Map.of(DynamoIngestionService.TABLE_NAME,
+                            requests.subList(requests.size() - unprocessed, requests.size())))
+                    .build();
+        }
+
+        List<Integer> batchSizes() {
+            return batches.stream().map(List::size).toList();
+        }
+
+        @Override
+        public String serviceName() {
+            return "dynamodb";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
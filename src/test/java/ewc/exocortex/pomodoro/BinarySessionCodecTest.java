@@ -0,0 +1,93 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the packed session layout.
+ */
+class BinarySessionCodecTest {
+
+    private static final long CHAT_ID = -100123456789L;
+    private static final Instant START = Instant.parse("2026-03-01T09:15:30.123Z");
+
+    private final BinarySessionCodec codec = new BinarySessionCodec();
+
+    private static SessionData ritual(final int duration, final String role) {
+        return SessionData.idle(CHAT_ID).waitingForDuration().waitingForTask(duration)
+                .waitingForRole("Разобрать входящие").waitingForProductType(role)
+                .working("Заметка", START, "pomodoro-" + CHAT_ID + "-1772356530123")
+                .nextVersion();
+    }
+
+    private SessionData roundTrip(final SessionData session) {
+        return codec.decode(CHAT_ID, session.version(), codec.encode(session));
+    }
+
+    @Test
+    @DisplayName("should round-trip a session with dictionary-coded role and duration")
+    void shouldRoundTripKnownValues() {
+        final SessionData session = ritual(45, "исследователь");
+
+        assertEquals(session, roundTrip(session));
+    }
+
+    @Test
+    @DisplayName("should round-trip values outside the dictionaries")
+    void shouldRoundTripUnknownValues() {
+        final SessionData session = ritual(25, "садовник").waitingForExtension().workingExtended("pomodoro-x");
+
+        assertEquals(session, roundTrip(session));
+    }
+
+    @Test
+    @DisplayName("should round-trip an outcome longer than 127 bytes")
+    void shouldRoundTripLongOutcome() {
+        final SessionData session = new SessionData(CHAT_ID, SessionState.WAITING_FOR_OUTCOME, 90, null,
+                "Задача", "ученик", "Код", START, "Сделано: ".repeat(200), 7L);
+
+        assertEquals(session, roundTrip(session));
+    }
+
+    @Test
+    @DisplayName("should round-trip an idle session")
+    void shouldRoundTripIdle() {
+        final SessionData session = SessionData.idle(CHAT_ID);
+
+        assertEquals(session, roundTrip(session));
+    }
+
+    @Test
+    @DisplayName("should be smaller than the attribute layout")
+    void shouldBeCompact() {
+        final SessionData session = ritual(45, "исследователь");
+        final byte[] packed = BinarySessionCodec.toBytes(session);
+
+        // DynamoDB bills attribute names plus values
+        int attributeSize = 0;
+        for (final var attribute : new AttributeSessionCodec().encode(session).entrySet()) {
+            final String value = attribute.getValue().s() != null ? attribute.getValue().s() : attribute.getValue().n();
+            attributeSize += utf8Length(attribute.getKey()) + utf8Length(value);
+        }
+        assertTrue(packed.length + utf8Length("data") + utf8Length("statusWORKING") < attributeSize,
+                packed.length + " vs " + attributeSize);
+    }
+
+    private static int utf8Length(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Test
+    @DisplayName("should reject an unknown format")
+    void shouldRejectUnknownFormat() {
+        final byte[] packed = BinarySessionCodec.toBytes(SessionData.idle(CHAT_ID));
+        packed[0] = 99;
+
+        assertThrows(IllegalArgumentException.class, () -> BinarySessionCodec.fromBytes(CHAT_ID, 0, packed));
+    }
+}
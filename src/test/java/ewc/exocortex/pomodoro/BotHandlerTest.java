@@ -2,16 +2,27 @@ package ewc.exocortex.pomodoro;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
-
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -163,6 +174,26 @@ class BotHandlerTest {
         assertNotNull(extendedSession.scheduleName(), "New schedule should be created");
     }
 
+    @Test
+    @DisplayName("Webhook without the secret token rejected")
+    void shouldRejectMissingSecret() {
+        handler = securedHandler();
+        final Map<String, Object> request = new HashMap<>(createMessageRequest(ADMIN_ID, "/start"));
+
+        assertEquals(401, handler.handleRequest(request, context).get("statusCode"));
+        assertTrue(telegramApi.sentMessages.isEmpty());
+
+        request.put("headers", Map.of("X-Telegram-Bot-Api-Secret-Token", "s3cr3t"));
+        handler.handleRequest(request, context);
+        assertState(SessionState.WAITING_FOR_DURATION);
+    }
+
+    private BotHandler securedHandler() {
+        return new BotHandler(securityService, telegramApi, ingestionService, sessionRepository, timerService,
+                SideEffects.sequential(), SessionCompletion.sequential(ingestionService, sessionRepository), null,
+                null, new WebhookFilter("s3cr3t", securityService));
+    }
+
     @Test
     @DisplayName("Unauthorized User Ignored")
     void shouldIgnoreUnauthorized() {
@@ -170,9 +201,410 @@ class BotHandlerTest {
         assertTrue(telegramApi.sentMessages.isEmpty());
     }
 
+    @Nested
+    @DisplayName("Stream entry point")
+    class StreamEntryPoint {
+
+        private StreamBotHandler streamHandler;
+
+        @BeforeEach
+        void setUp() {
+            streamHandler = new StreamBotHandler(handler);
+        }
+
+        @Test
+        @DisplayName("should route an API Gateway webhook and answer 200")
+        void shouldRouteWebhook() throws IOException {
+            final String response = invokeStream(apiGatewayEvent(
+                    "{\"update_id\":1,\"message\":{\"chat\":{\"id\":" + ADMIN_ID + "},\"text\":\"/start\"}}",
+                    false));
+
+            assertLastMessageContains("Выберите продолжительность");
+            assertState(SessionState.WAITING_FOR_DURATION);
+            assertEquals("{\"statusCode\":200,\"body\":\"{\\\"ok\\\":true}\"}", response);
+        }
+
+        @Test
+        @DisplayName("should decode a base64-encoded body")
+        void shouldDecodeBase64Body() throws IOException {
+            final String json = "{\"message\":{\"chat\":{\"id\":" + ADMIN_ID + "},\"text\":\"/start\"}}";
+            invokeStream(apiGatewayEvent(
+                    Base64.getEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8)), true));
+
+            assertState(SessionState.WAITING_FOR_DURATION);
+        }
+
+        @Test
+        @DisplayName("should handle a TIMER_DONE event")
+        void shouldHandleTimerDone() throws IOException {
+            shouldCompleteRitualFlow();
+
+            invokeStream("{\"action\":\"TIMER_DONE\",\"chatId\":" + ADMIN_ID + "}");
+
+            assertLastMessageContains("Время вышло");
+            assertState(SessionState.WAITING_FOR_EXTENSION);
+        }
+
+        @Test
+        @DisplayName("should acknowledge a redelivered update without touching the session")
+        void shouldDropRedelivery() throws IOException {
+            streamHandler = new StreamBotHandler(new BotHandler(securityService, telegramApi, ingestionService,
+                    sessionRepository, timerService, SideEffects.sequential(),
+                    SessionCompletion.sequential(ingestionService, sessionRepository), null,
+                    new UpdateDeduplicator(null), new WebhookFilter(null, securityService)));
+            final String start = apiGatewayEvent(
+                    "{\"update_id\":7,\"message\":{\"chat\":{\"id\":" + ADMIN_ID + "},\"text\":\"/start\"}}",
+                    false);
+            invokeStream(start);
+            handler.handleRequest(createCallbackRequest(ADMIN_ID, "cb1", "duration:25"), context);
+            telegramApi.allMessages.clear();
+
+            final String response = invokeStream(start);
+
+            assertEquals("{\"statusCode\":200,\"body\":\"{\\\"ok\\\":true}\"}", response);
+            assertTrue(telegramApi.allMessages.isEmpty());
+            assertState(SessionState.WAITING_FOR_TASK);
+        }
+
+        @Test
+        @DisplayName("should ignore unauthorized chats")
+        void shouldIgnoreUnauthorized() throws IOException {
+            invokeStream(apiGatewayEvent(
+                    "{\"message\":{\"chat\":{\"id\":" + STRANGER_ID + "},\"text\":\"/start\"}}", false));
+
+            assertTrue(telegramApi.allMessages.isEmpty());
+        }
+
+        @Test
+        @DisplayName("should answer 401 without routing when the secret token is wrong")
+        void shouldRejectWrongSecret() throws IOException {
+            streamHandler = new StreamBotHandler(securedHandler());
+            final String body = "{\"update_id\":1,\"message\":{\"chat\":{\"id\":" + ADMIN_ID
+                    + "},\"text\":\"/start\"}}";
+
+            assertEquals("{\"statusCode\":401}", invokeStream(apiGatewayEvent(body, false)));
+            assertEquals("{\"statusCode\":401}",
+                    invokeStream(apiGatewayEvent(body, false).replace("\"content-type\"",
+                            "\"x-telegram-bot-api-secret-token\":\"wrong\",\"content-type\"")));
+            assertTrue(telegramApi.allMessages.isEmpty());
+
+            invokeStream(apiGatewayEvent(body, false).replace("\"content-type\"",
+                    "\"x-telegram-bot-api-secret-token\":\"s3cr3t\",\"content-type\""));
+            assertState(SessionState.WAITING_FOR_DURATION);
+        }
+
+        @Test
+        @DisplayName("should drop ignored update kinds before parsing")
+        void shouldIgnoreEditedMessages() throws IOException {
+            final String response = invokeStream(apiGatewayEvent(
+                    "{\"update_id\":1,\"edited_message\":{\"chat\":{\"id\":" + ADMIN_ID + "},\"text\":\"/start\"}}",
+                    false));
+
+            assertEquals("{\"statusCode\":200,\"body\":\"{\\\"ok\\\":true}\"}", response);
+            assertFalse(sessionRepository.hasSession(ADMIN_ID));
+        }
+
+        private String invokeStream(final String event) throws IOException {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            streamHandler.handleRequest(
+                    new ByteArrayInputStream(event.getBytes(StandardCharsets.UTF_8)), output, context);
+            return output.toString(StandardCharsets.UTF_8);
+        }
+
+        private String apiGatewayEvent(final String body, final boolean base64) {
+            final String escaped = body.replace("\\", "\\\\").replace("\"", "\\\"");
+            return "{\"version\":\"2.0\",\"routeKey\":\"POST /webhook\",\"rawPath\":\"/webhook\","
+                    + "\"headers\":{\"content-type\":\"application/json\"},"
+                    + "\"requestContext\":{\"http\":{\"method\":\"POST\"}},"
+                    + "\"body\":\"" + escaped + "\",\"isBase64Encoded\":" + base64 + "}";
+        }
+    }
+
+    @Nested
+    @DisplayName("Concurrent side effects")
+    class ConcurrentSideEffects {
+
+        @BeforeEach
+        void setUp() {
+            handler = new BotHandler(securityService, telegramApi, ingestionService, sessionRepository,
+                    timerService, SideEffects.concurrent(),
+                    SessionCompletion.sequential(ingestionService, sessionRepository), null, null,
+                    new WebhookFilter(null, securityService));
+        }
+
+        @Test
+        @DisplayName("should complete the ritual and reflection flow")
+        void shouldCompleteFlows() {
+            shouldCompleteReflectionFlow();
+        }
+
+        @Test
+        @DisplayName("should cancel the running timer on /start")
+        void shouldCancelTimerOnRestart() {
+            shouldCompleteRitualFlow();
+            final String scheduleName = sessionRepository.getSession(ADMIN_ID).scheduleName();
+
+            handler.handleRequest(createMessageRequest(ADMIN_ID, "/start"), context);
+
+            assertEquals(scheduleName, timerService.getLastCancelledSchedule());
+            assertState(SessionState.WAITING_FOR_DURATION);
+        }
+
+        @Test
+        @DisplayName("should let the callback acknowledgement finish when the transition fails")
+        void shouldFinishAcknowledgementOnFailure() {
+            shouldCompleteRitualFlow();
+            handler.handleRequest(Map.<String, Object>of("action", "TIMER_DONE", "chatId", ADMIN_ID), context);
+            handler = new BotHandler(securityService, telegramApi, ingestionService, sessionRepository,
+                    new NoOpTimerService() {
+                        @Override
+                        public void createTimer(final String scheduleName, final long chatId, final int minutes) {
+                            throw new IllegalStateException("Scheduler unavailable");
+                        }
+                    }, SideEffects.concurrent(),
+                    SessionCompletion.sequential(ingestionService, sessionRepository), null, null,
+                    new WebhookFilter(null, securityService));
+            telegramApi.answeredCallbacks.clear();
+            telegramApi.answerDelayMillis = 100;
+
+            handler.handleRequest(createCallbackRequest(ADMIN_ID, "cb7", "extension:10"), context);
+
+            assertEquals(List.of("cb1"), telegramApi.answeredCallbacks);
+            assertState(SessionState.WAITING_FOR_EXTENSION);
+        }
+    }
+
+    @Nested
+    @DisplayName("Webhook reply mode")
+    class WebhookReplyMode {
+
+        private final ObjectMapper mapper = new ObjectMapper();
+
+        @BeforeEach
+        void setUp() {
+            handler = new BotHandler(securityService,
+                    new WebhookReplyTelegramApi(telegramApi, new OutboundPayloadCache(mapper)),
+                    ingestionService, sessionRepository, timerService);
+        }
+
+        @Test
+        @DisplayName("should return the keyboard prompt as the webhook response")
+        void shouldReturnKeyboardInResponse() throws IOException {
+            final Map<String, Object> response = handler.handleRequest(createMessageRequest(ADMIN_ID, "/start"),
+                    context);
+
+            assertState(SessionState.WAITING_FOR_DURATION);
+            assertTrue(telegramApi.allMessages.isEmpty(), "Main reply must not go out over HTTP");
+            final JsonNode body = mapper.readTree((String) response.get("body"));
+            assertEquals("sendMessage", body.get("method").asText());
+            assertEquals(ADMIN_ID, body.get("chat_id").asLong());
+            assertTrue(body.get("text").asText().contains("Выберите продолжительность"));
+            assertEquals(5, body.get("reply_markup").get("inline_keyboard").size());
+        }
+
+        @Test
+        @DisplayName("should answer plain prompts in the response and keep the handler reusable")
+        void shouldReturnPlainPromptInResponse() throws IOException {
+            handler.handleRequest(createMessageRequest(ADMIN_ID, "/start"), context);
+            final Map<String, Object> response = handler.handleRequest(
+                    createCallbackRequest(ADMIN_ID, "cb1", "duration:45"), context);
+
+            assertState(SessionState.WAITING_FOR_TASK);
+            assertTrue(telegramApi.allMessages.isEmpty());
+            final JsonNode body = mapper.readTree((String) response.get("body"));
+            assertTrue(body.get("text").asText().contains("Что ты собираешься делать?"));
+        }
+
+        @Test
+        @DisplayName("should send timer prompts over HTTP")
+        void shouldSendTimerPromptOverHttp() {
+            sessionRepository.saveSession(SessionData.idle(ADMIN_ID).waitingForDuration().waitingForTask(45)
+                    .waitingForRole("Coding").waitingForProductType("профессионал")
+                    .working("Code", Instant.now(), "schedule"));
+
+            final Map<String, Object> response = handler.handleRequest(
+                    Map.of("action", "TIMER_DONE", "chatId", ADMIN_ID), context);
+
+            assertLastMessageContains("Время вышло");
+            assertEquals("{\"ok\":true}", response.get("body"));
+        }
+
+        @Test
+        @DisplayName("should write the reply through the stream entry point")
+        void shouldWriteReplyThroughStream() throws IOException {
+            final String event = "{\"body\":\"{\\\"message\\\":{\\\"chat\\\":{\\\"id\\\":" + ADMIN_ID
+                    + "},\\\"text\\\":\\\"/start\\\"}}\"}";
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            new StreamBotHandler(handler).handleRequest(
+                    new ByteArrayInputStream(event.getBytes(StandardCharsets.UTF_8)), output, context);
+
+            final JsonNode response = mapper.readTree(output.toByteArray());
+            assertEquals(200, response.get("statusCode").asInt());
+            final JsonNode body = mapper.readTree(response.get("body").asText());
+            assertEquals("sendMessage", body.get("method").asText());
+            assertTrue(telegramApi.allMessages.isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("Spill queue")
+    class SpillQueueMode {
+
+        @TempDir
+        Path dir;
+        private SpillQueue spillQueue;
+
+        @BeforeEach
+        void setUp() {
+            spillQueue = new SpillQueue(dir.resolve(SpillQueue.FILE_NAME));
+            handler = new BotHandler(securityService, telegramApi, ingestionService, sessionRepository,
+                    timerService, SideEffects.sequential(),
+                    SessionCompletion.sequential(ingestionService, sessionRepository), spillQueue, null,
+                    new WebhookFilter(null, securityService));
+        }
+
+        @Test
+        @DisplayName("should spill the session and say it is queued when ingestion fails")
+        void shouldSpillOnFailure() throws IOException {
+            shouldCompleteRitualFlow();
+            handler.handleRequest(createMessageRequest(ADMIN_ID, "/stop"), context);
+            ingestionService.throttled = true;
+
+            handler.handleRequest(createMessageRequest(ADMIN_ID, "Done. Next: Sleep"), context);
+
+            assertLastMessageContains("поставлена в очередь");
+            assertFalse(sessionRepository.hasSession(ADMIN_ID));
+            assertEquals(List.of("Done. Next: Sleep"),
+                    spillQueue.read().stream().map(IngestionPayload::outcome).toList());
+        }
+
+        @Test
+        @DisplayName("should not spill a committed session when the reply fails")
+        void shouldNotSpillAfterCommit() throws IOException {
+            shouldCompleteRitualFlow();
+            handler.handleRequest(createMessageRequest(ADMIN_ID, "/stop"), context);
+            telegramApi.failSends = true;
+
+            handler.handleRequest(createMessageRequest(ADMIN_ID, "Done. Next: Sleep"), context);
+
+            assertEquals(1, ingestionService.ingestedSessions.size());
+            assertTrue(spillQueue.read().isEmpty());
+        }
+
+        @Test
+        @DisplayName("should ingest spilled sessions on a later update")
+        void shouldDrainOnLaterUpdate() throws Exception {
+            shouldSpillOnFailure();
+            ingestionService.throttled = false;
+
+            handler.handleRequest(createMessageRequest(ADMIN_ID, "/start"), context);
+
+            for (int i = 0; i < 100 && !spillQueue.isEmpty(); i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(spillQueue.isEmpty());
+            assertEquals("Done. Next: Sleep", ingestionService.ingestedSessions.get(0).outcome());
+        }
+    }
+
+    @Nested
+    @DisplayName("Concurrent writes")
+    class ConcurrentWrites {
+
+        private InterleavingSessionRepository interleaving;
+
+        @BeforeEach
+        void setUp() {
+            interleaving = new InterleavingSessionRepository(sessionRepository);
+            handler = new BotHandler(securityService, telegramApi, ingestionService, interleaving, timerService);
+        }
+
+        @Test
+        @DisplayName("should drop a double tap without touching the scheduler")
+        void shouldDropDoubleTap() {
+            shouldCompleteRitualFlow();
+            handler.handleRequest(Map.of("action", "TIMER_DONE", "chatId", ADMIN_ID), context);
+            telegramApi.sentMessages.clear();
+            final int timersBefore = timerService.getCreatedTimers();
+            interleaving.beforeNextSave = () ->
+                    handler.handleRequest(createCallbackRequest(ADMIN_ID, "cb8", "extension:10"), context);
+
+            handler.handleRequest(createCallbackRequest(ADMIN_ID, "cb7", "extension:10"), context);
+
+            assertEquals(1, telegramApi.sentMessages.size());
+            assertLastMessageContains("Таймер продлен на 10 минут");
+            assertState(SessionState.WORKING);
+            assertEquals(timersBefore + 1, timerService.getCreatedTimers());
+            assertEquals(timerService.getLastScheduleName(), sessionRepository.getSession(ADMIN_ID).scheduleName());
+            assertNull(timerService.getLastCancelledSchedule());
+        }
+
+        @Test
+        @DisplayName("should keep the running timer when /start loses to a concurrent write")
+        void shouldNotCancelTimerOnLostStart() {
+            shouldCompleteRitualFlow();
+            interleaving.beforeNextSave = () ->
+                    handler.handleRequest(Map.of("action", "TIMER_DONE", "chatId", ADMIN_ID), context);
+
+            handler.handleRequest(createMessageRequest(ADMIN_ID, "/start"), context);
+
+            assertNull(timerService.getLastCancelledSchedule());
+            assertState(SessionState.WAITING_FOR_EXTENSION);
+        }
+
+        @Test
+        @DisplayName("should retry once when the session changed without moving on")
+        void shouldRetryOnSameStatus() {
+            handler.handleRequest(createMessageRequest(ADMIN_ID, "/start"), context);
+            handler.handleRequest(createCallbackRequest(ADMIN_ID, "cb1", "duration:25"), context);
+            interleaving.beforeNextSave = () ->
+                    sessionRepository.saveSession(sessionRepository.getSession(ADMIN_ID));
+
+            handler.handleRequest(createMessageRequest(ADMIN_ID, "Coding"), context);
+
+            assertLastMessageContains("В какой роли");
+            assertState(SessionState.WAITING_FOR_ROLE);
+            assertEquals("Coding", sessionRepository.getSession(ADMIN_ID).task());
+        }
+    }
+
+    /**
+     * Repository that lets a competing write happen between a handler's read and its save.
+     */
+    private static class InterleavingSessionRepository implements SessionRepository {
+        private final SessionRepository delegate;
+        Runnable beforeNextSave;
+
+        InterleavingSessionRepository(final SessionRepository delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public SessionData getSession(final long chatId) {
+            return delegate.getSession(chatId);
+        }
+
+        @Override
+        public SessionData saveSession(final SessionData session) {
+            final Runnable competing = beforeNextSave;
+            beforeNextSave = null;
+            if (competing != null) {
+                competing.run();
+            }
+            return delegate.saveSession(session);
+        }
+
+        @Override
+        public void deleteSession(final long chatId) {
+            delegate.deleteSession(chatId);
+        }
+    }
+
     // Mock IngestionService instead of DriveApi
     private static class FakeIngestionService extends DynamoIngestionService {
         final List<IngestionPayload> ingestedSessions = new ArrayList<>();
+        volatile boolean throttled;
 
         public FakeIngestionService() {
             super(null); // No client needed for mock
@@ -180,6 +612,9 @@ class BotHandlerTest {
 
         @Override
         public void ingestSession(final IngestionPayload payload) {
+            if (throttled) {
+                throw new IllegalStateException("ProvisionedThroughputExceeded");
+            }
             ingestedSessions.add(payload);
         }
     }
@@ -283,6 +718,9 @@ class BotHandlerTest {
         final List<String> allMessages = new ArrayList<>(); // Stores text of all messages in order
         final List<SentMessage> sentMessages = new ArrayList<>();
         final List<KeyboardMessage> keyboardMessages = new ArrayList<>();
+        final List<String> answeredCallbacks = new CopyOnWriteArrayList<>();
+        volatile boolean failSends;
+        volatile long answerDelayMillis;
 
         @Override
         public Update parseUpdate(final String json) throws IOException {
@@ -298,7 +736,10 @@ class BotHandlerTest {
         }
 
         @Override
-        public void sendMessage(long chatId, String text) {
+        public void sendMessage(long chatId, String text) throws IOException {
+            if (failSends) {
+                throw new IOException("Telegram unavailable");
+            }
             sentMessages.add(new SentMessage(chatId, text));
             allMessages.add(text);
         }
@@ -310,7 +751,11 @@ class BotHandlerTest {
         }
 
         @Override
-        public void answerCallbackQuery(String callbackQueryId) {
+        public void answerCallbackQuery(String callbackQueryId) throws InterruptedException {
+            if (answerDelayMillis > 0) {
+                Thread.sleep(answerDelayMillis);
+            }
+            answeredCallbacks.add(callbackQueryId);
         }
 
         record SentMessage(long chatId, String text) {
@@ -0,0 +1,155 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CachingSessionRepository over a counting in-memory store.
+ * Writes made directly to the store stand in for another Lambda container.
+ */
+class CachingSessionRepositoryTest {
+
+    private static final long CHAT_ID = 42L;
+
+    private long now;
+    private CountingRepository store;
+
+    @BeforeEach
+    void setUp() {
+        now = 1_000_000_000L;
+        store = new CountingRepository();
+    }
+
+    @Nested
+    @DisplayName("With version check on every read")
+    class AlwaysVerify {
+
+        private CachingSessionRepository cache;
+
+        @BeforeEach
+        void setUp() {
+            cache = new CachingSessionRepository(store, Duration.ZERO, () -> now);
+        }
+
+        @Test
+        @DisplayName("should serve a session written by this container without a full read")
+        void shouldServeOwnWrite() {
+            final SessionData saved = cache.saveSession(SessionData.idle(CHAT_ID).waitingForDuration());
+
+            final SessionData read = cache.getSession(CHAT_ID);
+
+            assertEquals(saved, read);
+            assertEquals(0, store.fullReads);
+            assertEquals(1, store.versionReads);
+        }
+
+        @Test
+        @DisplayName("should stamp each save with a higher version")
+        void shouldIncreaseVersion() {
+            final SessionData first = cache.saveSession(SessionData.idle(CHAT_ID).waitingForDuration());
+            final SessionData second = cache.saveSession(first.waitingForTask(25));
+
+            assertTrue(first.version() > 0);
+            assertEquals(first.version() + 1, second.version());
+        }
+
+        @Test
+        @DisplayName("should re-read when another container changed the item")
+        void shouldReReadAfterForeignWrite() {
+            final SessionData saved = cache.saveSession(SessionData.idle(CHAT_ID).waitingForDuration());
+            store.saveSession(saved.waitingForTask(25));
+
+            final SessionData read = cache.getSession(CHAT_ID);
+
+            assertEquals(SessionState.WAITING_FOR_TASK, read.status());
+            assertEquals(1, store.fullReads);
+        }
+
+        @Test
+        @DisplayName("should fall back to the store on a miss and cache the result")
+        void shouldCacheMiss() {
+            store.saveSession(SessionData.idle(CHAT_ID).waitingForDuration());
+
+            cache.getSession(CHAT_ID);
+            cache.getSession(CHAT_ID);
+
+            assertEquals(1, store.fullReads);
+            assertEquals(1, store.versionReads);
+        }
+
+        @Test
+        @DisplayName("should forget a deleted session")
+        void shouldForgetDeletedSession() {
+            cache.saveSession(SessionData.idle(CHAT_ID).waitingForDuration());
+
+            cache.deleteSession(CHAT_ID);
+
+            assertEquals(SessionState.IDLE, cache.getSession(CHAT_ID).status());
+            assertEquals(1, store.fullReads);
+        }
+    }
+
+    @Nested
+    @DisplayName("With a trust window")
+    class TrustWindow {
+
+        private CachingSessionRepository cache;
+
+        @BeforeEach
+        void setUp() {
+            cache = new CachingSessionRepository(store, Duration.ofSeconds(5), () -> now);
+        }
+
+        @Test
+        @DisplayName("should not touch the store inside the window")
+        void shouldServeWithinWindow() {
+            cache.saveSession(SessionData.idle(CHAT_ID).waitingForDuration());
+            now += TimeUnit.SECONDS.toNanos(4);
+
+            cache.getSession(CHAT_ID);
+
+            assertEquals(0, store.fullReads);
+            assertEquals(0, store.versionReads);
+        }
+
+        @Test
+        @DisplayName("should verify the version once the window has passed")
+        void shouldVerifyAfterWindow() {
+            cache.saveSession(SessionData.idle(CHAT_ID).waitingForDuration());
+            now += TimeUnit.SECONDS.toNanos(6);
+
+            cache.getSession(CHAT_ID);
+            cache.getSession(CHAT_ID);
+
+            assertEquals(0, store.fullReads);
+            assertEquals(1, store.versionReads);
+        }
+    }
+
+    /**
+     * In-memory store that counts full reads and version reads.
+     */
+    static class CountingRepository extends InMemorySessionRepository {
+        int fullReads;
+        int versionReads;
+
+        @Override
+        public SessionData getSession(final long chatId) {
+            fullReads++;
+            return super.getSession(chatId);
+        }
+
+        @Override
+        public long getVersion(final long chatId) {
+            versionReads++;
+            return super.getSession(chatId).version();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChatIdSet.
+ */
+class ChatIdSetTest {
+
+    @Test
+    @DisplayName("should agree with a HashSet on random user and group IDs")
+    void shouldMatchHashSet() {
+        final Random random = new Random(42);
+        final long[] ids = new long[5000];
+        final Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            // Users are positive, groups negative; every tenth ID repeats an earlier one
+            ids[i] = i % 10 == 9 ? ids[i - 1] : random.nextBoolean()
+                    ? random.nextLong(1, 10_000_000_000L)
+                    : -1_000_000_000_000L - random.nextLong(1_000_000_000L);
+            expected.add(ids[i]);
+        }
+
+        final ChatIdSet set = ChatIdSet.of(ids);
+
+        assertEquals(expected.size(), set.size());
+        for (final long id : ids) {
+            assertTrue(set.contains(id));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            final long probe = random.nextLong();
+            assertEquals(expected.contains(probe), set.contains(probe));
+        }
+    }
+
+    @Test
+    @DisplayName("should track zero, the empty-slot marker, exactly")
+    void shouldHandleZero() {
+        assertFalse(ChatIdSet.of(1L, 2L).contains(0L));
+        assertTrue(ChatIdSet.of(0L, 0L, 1L).contains(0L));
+        assertEquals(2, ChatIdSet.of(0L, 0L, 1L).size());
+    }
+
+    @Test
+    @DisplayName("should contain nothing when empty")
+    void shouldBeEmpty() {
+        final ChatIdSet set = ChatIdSet.of();
+
+        assertEquals(0, set.size());
+        assertFalse(set.contains(0L));
+        assertFalse(set.contains(123456789L));
+    }
+}
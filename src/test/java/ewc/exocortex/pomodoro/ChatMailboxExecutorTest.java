@@ -0,0 +1,111 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChatMailboxExecutor.
+ */
+class ChatMailboxExecutorTest {
+
+    private final ChatMailboxExecutor executor = new ChatMailboxExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("should run a chat's tasks one at a time and in submission order")
+    void shouldSerializePerChat() throws Exception {
+        final Map<Long, AtomicInteger> running = new ConcurrentHashMap<>();
+        final Map<Long, List<Integer>> order = new ConcurrentHashMap<>();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            final long chatId = i % 4;
+            final int sequence = i;
+            futures.add(executor.submit(chatId, () -> {
+                if (running.computeIfAbsent(chatId, id -> new AtomicInteger()).incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                order.computeIfAbsent(chatId, id -> new CopyOnWriteArrayList<>()).add(sequence);
+                Thread.yield();
+                running.get(chatId).decrementAndGet();
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(0, overlaps.get());
+        for (final Map.Entry<Long, List<Integer>> chat : order.entrySet()) {
+            final List<Integer> sequences = chat.getValue();
+            assertEquals(50, sequences.size());
+            for (int i = 1; i < sequences.size(); i++) {
+                assertTrue(sequences.get(i - 1) < sequences.get(i), "chat " + chat.getKey() + " out of order");
+            }
+        }
+        // Futures complete just before the drainer retires the mailbox
+        for (int i = 0; i < 500 && executor.activeChats() > 0; i++) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, executor.activeChats());
+    }
+
+    @Test
+    @DisplayName("should run different chats in parallel")
+    void shouldRunChatsInParallel() throws Exception {
+        final CountDownLatch bothRunning = new CountDownLatch(2);
+        final CompletableFuture<Void> first = executor.submit(1L, () -> awaitQuietly(bothRunning));
+        final CompletableFuture<Void> second = executor.submit(2L, () -> awaitQuietly(bothRunning));
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("should report a failing task and keep draining the chat")
+    void shouldSurviveFailures() throws Exception {
+        final CompletableFuture<Void> failed = executor.submit(1L, () -> {
+            throw new IllegalStateException("boom");
+        });
+        final CompletableFuture<Void> next = executor.submit(1L, () -> { });
+
+        final ExecutionException error = assertThrows(ExecutionException.class,
+                () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        next.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("should reject tasks after close")
+    void shouldRejectAfterClose() {
+        executor.close();
+
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(1L, () -> { }));
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        latch.countDown();
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "chats did not overlap");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
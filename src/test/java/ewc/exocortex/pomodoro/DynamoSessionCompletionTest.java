@@ -0,0 +1,138 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DynamoSessionCompletion.
+ */
+class DynamoSessionCompletionTest {
+
+    private static final long CHAT_ID = 42L;
+    private static final Instant START = Instant.parse("2026-01-01T10:00:00Z");
+
+    private FakeDynamoDbClient client;
+    private DynamoSessionCompletion completion;
+
+    @BeforeEach
+    void setUp() {
+        client = new FakeDynamoDbClient();
+        completion = new DynamoSessionCompletion(client, new DynamoIngestionService(client));
+    }
+
+    private static SessionData finishing(final long version) {
+        return new SessionData(CHAT_ID, SessionState.WAITING_FOR_OUTCOME, 25, "pomodoro-42",
+                "Task", "ученик", "Код", START, null, version);
+    }
+
+    private static IngestionPayload payload() {
+        return new IngestionPayload("Task", "ученик", "Код", START, START.plusSeconds(1500), 25, "Done");
+    }
+
+    @Test
+    @DisplayName("should put the record and delete the state in one transaction")
+    void shouldWriteBothInOneTransaction() {
+        assertTrue(completion.complete(finishing(7L), payload()));
+
+        assertEquals(1, client.transactions.size());
+        final List<TransactWriteItem> items = client.transactions.get(0).transactItems();
+        assertEquals(DynamoIngestionService.TABLE_NAME, items.get(0).put().tableName());
+        assertNull(items.get(0).put().conditionExpression());
+        assertEquals(DynamoSessionRepository.TABLE_NAME, items.get(1).delete().tableName());
+        assertEquals("#status = :status AND #version = :version", items.get(1).delete().conditionExpression());
+        assertEquals("WAITING_FOR_OUTCOME", items.get(1).delete().expressionAttributeValues().get(":status").s());
+        assertEquals("7", items.get(1).delete().expressionAttributeValues().get(":version").n());
+    }
+
+    @Test
+    @DisplayName("should use a fresh request token for every attempt")
+    void shouldUseTokenPerAttempt() {
+        completion.complete(finishing(7L), payload());
+        completion.complete(finishing(7L), payload());
+
+        final List<TransactWriteItemsRequest> requests = client.transactions;
+        assertNotEquals(requests.get(0).clientRequestToken(), requests.get(1).clientRequestToken());
+        assertEquals(DynamoSessionCompletion.completionId(requests.get(0).transactItems().get(0).put().item()),
+                requests.get(0).clientRequestToken());
+    }
+
+    @Test
+    @DisplayName("should not mistake a token mismatch for a completed session")
+    void shouldPropagateTokenMismatch() {
+        client.rejection = IdempotentParameterMismatchException.builder().message("mismatch").build();
+
+        assertThrows(IdempotentParameterMismatchException.class, () -> completion.complete(finishing(7L), payload()));
+    }
+
+    @Test
+    @DisplayName("should require a missing version for items written before versioning")
+    void shouldHandleUnversionedItems() {
+        completion.complete(finishing(0L), payload());
+
+        assertEquals("#status = :status AND attribute_not_exists(#version)",
+                client.transactions.get(0).transactItems().get(1).delete().conditionExpression());
+    }
+
+    @Test
+    @DisplayName("should report an already completed session")
+    void shouldReportFailedCondition() {
+        client.cancellation = TransactionCanceledException.builder()
+                .cancellationReasons(
+                        CancellationReason.builder().code("None").build(),
+                        CancellationReason.builder().code("ConditionalCheckFailed").build())
+                .build();
+
+        assertFalse(completion.complete(finishing(7L), payload()));
+    }
+
+    @Test
+    @DisplayName("should propagate other cancellations")
+    void shouldPropagateConflicts() {
+        client.cancellation = TransactionCanceledException.builder()
+                .cancellationReasons(CancellationReason.builder().code("TransactionConflict").build())
+                .build();
+
+        assertThrows(TransactionCanceledException.class, () -> completion.complete(finishing(7L), payload()));
+    }
+
+    /**
+     * Fake client that records transactions and optionally cancels them.
+     */
+    static class FakeDynamoDbClient implements DynamoDbClient {
+        final List<TransactWriteItemsRequest> transactions = new ArrayList<>();
+        TransactionCanceledException cancellation;
+        IdempotentParameterMismatchException rejection;
+
+        @Override
+        public TransactWriteItemsResponse transactWriteItems(final TransactWriteItemsRequest request)
+                throws SdkException {
+            transactions.add(request);
+            if (cancellation != null) {
+                throw cancellation;
+            }
+            if (rejection != null) {
+                throw rejection;
+            }
+            return TransactWriteItemsResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "dynamodb";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
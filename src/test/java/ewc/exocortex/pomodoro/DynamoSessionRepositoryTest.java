@@ -0,0 +1,269 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DynamoSessionRepository write modes.
+ */
+class DynamoSessionRepositoryTest {
+
+    private static final long CHAT_ID = 42L;
+
+    private FakeDynamoDbClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = new FakeDynamoDbClient();
+    }
+
+    private static SessionData working() {
+        return SessionData.idle(CHAT_ID).waitingForDuration().waitingForTask(25)
+                .waitingForRole("Task").waitingForProductType("Role")
+                .working("Product", Instant.parse("2026-01-01T10:00:00Z"), "pomodoro-42");
+    }
+
+    @Nested
+    @DisplayName("Full mode")
+    class FullMode {
+
+        @Test
+        @DisplayName("should always write the whole item")
+        void shouldPutWholeItem() {
+            final DynamoSessionRepository repository = new DynamoSessionRepository(client);
+
+            final SessionData saved = repository.saveSession(working());
+            repository.saveSession(saved.waitingForExtension());
+
+            assertEquals(2, client.putRequests.size());
+            assertTrue(client.updateRequests.isEmpty());
+        }
+
+        @Test
+        @DisplayName("should guard every write by the version the state was derived from")
+        void shouldPutConditionally() {
+            final DynamoSessionRepository repository = new DynamoSessionRepository(client);
+
+            final SessionData saved = repository.saveSession(working());
+            repository.saveSession(saved.waitingForExtension());
+
+            assertEquals("attribute_not_exists(#version)", client.putRequests.get(0).conditionExpression());
+            final PutItemRequest second = client.putRequests.get(1);
+            assertEquals("#version = :expectedVersion", second.conditionExpression());
+            assertEquals(String.valueOf(saved.version()), second.expressionAttributeValues().get(":expectedVersion").n());
+        }
+
+        @Test
+        @DisplayName("should reject a write that lost to a concurrent one")
+        void shouldRejectStaleWrite() {
+            final DynamoSessionRepository repository = new DynamoSessionRepository(client);
+            final SessionData saved = repository.saveSession(working());
+            client.failConditions = true;
+
+            final SessionConflictException conflict = assertThrows(SessionConflictException.class,
+                    () -> repository.saveSession(saved.waitingForExtension()));
+
+            assertEquals(saved.version(), conflict.expectedVersion());
+            assertEquals(SessionState.WORKING, repository.getSession(CHAT_ID).status());
+        }
+    }
+
+    @Nested
+    @DisplayName("Delta mode")
+    class DeltaMode {
+
+        private DynamoSessionRepository repository;
+
+        @BeforeEach
+        void setUp() {
+            repository = new DynamoSessionRepository(client, DynamoSessionRepository.WriteMode.DELTA);
+        }
+
+        @Test
+        @DisplayName("should write an unknown session in full")
+        void shouldPutFirstWrite() {
+            repository.saveSession(working());
+
+            assertEquals(1, client.putRequests.size());
+            assertTrue(client.updateRequests.isEmpty());
+        }
+
+        @Test
+        @DisplayName("should set only the changed attributes, guarded by the previous version")
+        void shouldUpdateChangedAttributes() {
+            final SessionData saved = repository.saveSession(working());
+
+            final SessionData next = repository.saveSession(saved.waitingForExtension());
+
+            assertEquals(1, client.updateRequests.size());
+            final UpdateItemRequest update = client.updateRequests.get(0);
+            final String expression = update.updateExpression();
+            assertTrue(expression.startsWith("SET "));
+            assertTrue(expression.contains("#status = :status"));
+            assertTrue(expression.contains("#version = :version"));
+            assertFalse(expression.contains("#task"));
+            assertFalse(expression.contains("REMOVE"));
+            assertEquals("#version = :expectedVersion", update.conditionExpression());
+            assertEquals(String.valueOf(saved.version()), update.expressionAttributeValues().get(":expectedVersion").n());
+            assertEquals(String.valueOf(next.version()), update.expressionAttributeValues().get(":version").n());
+        }
+
+        @Test
+        @DisplayName("should remove attributes that became null")
+        void shouldRemoveClearedAttributes() {
+            final SessionData saved = repository.saveSession(working().waitingForExtension().waitingForOutcome());
+
+            repository.saveSession(saved.waitingForDuration());
+
+            final String expression = client.updateRequests.get(0).updateExpression();
+            assertTrue(expression.contains(" REMOVE "));
+            assertTrue(expression.contains("#task"));
+            assertTrue(expression.contains("#startTime"));
+        }
+
+        @Test
+        @DisplayName("should derive deltas from a session it has read")
+        void shouldUpdateAfterRead() {
+            new DynamoSessionRepository(client).saveSession(working());
+
+            final SessionData read = repository.getSession(CHAT_ID);
+            repository.saveSession(read.waitingForExtension());
+
+            assertEquals(1, client.updateRequests.size());
+        }
+
+        @Test
+        @DisplayName("should reject the update and forget the item when the version moved on")
+        void shouldRejectOnConflict() {
+            final SessionData saved = repository.saveSession(working());
+            client.failConditions = true;
+
+            assertThrows(SessionConflictException.class, () -> repository.saveSession(saved.waitingForExtension()));
+            client.failConditions = false;
+            repository.saveSession(repository.getSession(CHAT_ID).waitingForExtension());
+
+            assertEquals(1, client.putRequests.size());
+            assertEquals(2, client.updateRequests.size());
+        }
+
+        @Test
+        @DisplayName("should write in full after a delete")
+        void shouldPutAfterDelete() {
+            final SessionData saved = repository.saveSession(working());
+            repository.deleteSession(CHAT_ID);
+
+            repository.saveSession(saved.waitingForExtension());
+
+            assertEquals(2, client.putRequests.size());
+            assertTrue(client.updateRequests.isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("Binary codec")
+    class BinaryCodec {
+
+        @Test
+        @DisplayName("should write the packed layout and read it back")
+        void shouldRoundTrip() {
+            final DynamoSessionRepository repository = new DynamoSessionRepository(client,
+                    DynamoSessionRepository.WriteMode.FULL, new BinarySessionCodec());
+
+            final SessionData saved = repository.saveSession(working());
+
+            final Map<String, AttributeValue> item = client.items.get(String.valueOf(CHAT_ID));
+            assertEquals(Set.of("chatId", "version", "status", "data"), item.keySet());
+            assertEquals(saved, repository.getSession(CHAT_ID));
+        }
+
+        @Test
+        @DisplayName("should read items in the attribute layout")
+        void shouldReadLegacyItems() {
+            final SessionData saved = new DynamoSessionRepository(client).saveSession(working());
+
+            final DynamoSessionRepository repository = new DynamoSessionRepository(client,
+                    DynamoSessionRepository.WriteMode.FULL, new BinarySessionCodec());
+
+            assertEquals(saved, repository.getSession(CHAT_ID));
+        }
+
+        @Test
+        @DisplayName("should migrate a legacy item with a delta write")
+        void shouldMigrateWithDelta() {
+            new DynamoSessionRepository(client).saveSession(working());
+            final DynamoSessionRepository repository = new DynamoSessionRepository(client,
+                    DynamoSessionRepository.WriteMode.DELTA, new BinarySessionCodec());
+
+            repository.saveSession(repository.getSession(CHAT_ID).waitingForExtension());
+
+            final String expression = client.updateRequests.get(0).updateExpression();
+            assertTrue(expression.contains("#data = :data"));
+            assertTrue(expression.contains(" REMOVE "));
+            assertTrue(expression.contains("#task"));
+        }
+    }
+
+    /**
+     * Fake client that stores put items and records update requests; conditions pass unless told to fail.
+     */
+    static class FakeDynamoDbClient implements DynamoDbClient {
+        final Map<String, Map<String, AttributeValue>> items = new HashMap<>();
+        final List<PutItemRequest> putRequests = new ArrayList<>();
+        final List<UpdateItemRequest> updateRequests = new ArrayList<>();
+        boolean failConditions;
+
+        @Override
+        public PutItemResponse putItem(final PutItemRequest request) throws SdkException {
+            putRequests.add(request);
+            if (failConditions && request.conditionExpression() != null) {
+                throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+            }
+            items.put(request.item().get("chatId").n(), request.item());
+            return PutItemResponse.builder().build();
+        }
+
+        @Override
+        public UpdateItemResponse updateItem(final UpdateItemRequest request) throws SdkException {
+            updateRequests.add(request);
+            if (failConditions) {
+                throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+            }
+            return UpdateItemResponse.builder().build();
+        }
+
+        @Override
+        public GetItemResponse getItem(final GetItemRequest request) throws SdkException {
+            final Map<String, AttributeValue> item = items.get(request.key().get("chatId").n());
+            return item == null ? GetItemResponse.builder().build() : GetItemResponse.builder().item(item).build();
+        }
+
+        @Override
+        public DeleteItemResponse deleteItem(final DeleteItemRequest request) throws SdkException {
+            items.remove(request.key().get("chatId").n());
+            return DeleteItemResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "dynamodb";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
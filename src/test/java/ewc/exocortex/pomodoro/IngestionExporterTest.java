@@ -0,0 +1,168 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IngestionExporter over a fake segmented table.
+ */
+class IngestionExporterTest {
+
+    private static final int RECORDS = 103;
+
+    @TempDir
+    Path dir;
+
+    private FakeDynamoDbClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = new FakeDynamoDbClient();
+        final DynamoIngestionService ingestion = new DynamoIngestionService(client);
+        final Instant start = Instant.parse("2025-01-01T10:00:00Z");
+        for (int i = 0; i < RECORDS; i++) {
+            ingestion.ingestSession(new IngestionPayload("Task " + i, "ученик", "Код",
+                    start.plusSeconds(i), start.plusSeconds(i + 1500), 25, "Итог " + i));
+        }
+    }
+
+    private List<String> exportedTasks() throws IOException {
+        final List<String> tasks = new ArrayList<>();
+        try (var files = Files.list(dir)) {
+            for (final Path file : files.filter(f -> f.toString().endsWith(".jsonl")).toList()) {
+                for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    tasks.add(DynamoIngestionService.MAPPER.readValue(line, IngestionPayload.class).task());
+                }
+            }
+        }
+        Collections.sort(tasks);
+        return tasks;
+    }
+
+    private static List<String> allTasks() {
+        final List<String> tasks = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++) {
+            tasks.add("Task " + i);
+        }
+        Collections.sort(tasks);
+        return tasks;
+    }
+
+    @Test
+    @DisplayName("should export every record once across parallel segments")
+    void shouldExportAllSegments() throws Exception {
+        final IngestionExporter.Summary summary = new IngestionExporter(client, dir, 4, 2, 10).export();
+
+        assertEquals(new IngestionExporter.Summary(RECORDS, 4), summary);
+        assertEquals(allTasks(), exportedTasks());
+        assertTrue(client.maxPageSize.get() <= 10);
+    }
+
+    @Test
+    @DisplayName("should resume a failed segment from its checkpoint without duplicates")
+    void shouldResumeFromCheckpoint() throws Exception {
+        client.failSegmentAfterPages(2, 2);
+        assertThrows(IOException.class, () -> new IngestionExporter(client, dir, 4, 4, 5).export());
+
+        // A partial page written after the checkpoint must be discarded on resume
+        Files.writeString(dir.resolve("segment-2.jsonl"), "{\"task\":\"garbage\"",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        final int scansBefore = client.scans.get();
+
+        final IngestionExporter.Summary summary = new IngestionExporter(client, dir, 4, 4, 5).export();
+
+        assertEquals(1, summary.segments());
+        assertEquals(allTasks(), exportedTasks());
+        assertTrue(client.scans.get() - scansBefore < RECORDS / 4 / 5 + 2, "only segment 2 rescanned");
+    }
+
+    @Test
+    @DisplayName("should do nothing for an export that already finished")
+    void shouldSkipFinishedExport() throws Exception {
+        new IngestionExporter(client, dir, 2, 2, 50).export();
+
+        assertEquals(new IngestionExporter.Summary(0, 0), new IngestionExporter(client, dir, 2, 2, 50).export());
+        assertEquals(allTasks(), exportedTasks());
+    }
+
+    /**
+     * Fake client: items are assigned to segments by key hash and scanned in key order.
+     */
+    static class FakeDynamoDbClient implements DynamoDbClient {
+        final List<Map<String, AttributeValue>> items = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger scans = new AtomicInteger();
+        final AtomicInteger maxPageSize = new AtomicInteger();
+        volatile int failingSegment = -1;
+        final AtomicInteger pagesBeforeFailure = new AtomicInteger();
+
+        void failSegmentAfterPages(final int segment, final int pages) {
+            failingSegment = segment;
+            pagesBeforeFailure.set(pages);
+        }
+
+        @Override
+        public PutItemResponse putItem(final PutItemRequest request) throws SdkException {
+            items.add(request.item());
+            return PutItemResponse.builder().build();
+        }
+
+        @Override
+        public ScanResponse scan(final ScanRequest request) throws SdkException {
+            scans.incrementAndGet();
+            final int segment = request.segment();
+            if (segment == failingSegment && pagesBeforeFailure.getAndDecrement() <= 0) {
+                failingSegment = -1;
+                throw SdkException.builder().message("Connection reset").build();
+            }
+            final String after = request.hasExclusiveStartKey() ? request.exclusiveStartKey().get("id").s() : "";
+
+            final List<Map<String, AttributeValue>> matching;
+            synchronized (items) {
+                matching = items.stream()
+                        .filter(item -> Math.floorMod(item.get("id").s().hashCode(), request.totalSegments())
+                                == segment)
+                        .filter(item -> item.get("id").s().compareTo(after) > 0)
+                        .sorted(Comparator.comparing(item -> item.get("id").s()))
+                        .toList();
+            }
+            final List<Map<String, AttributeValue>> page = matching.subList(0,
+                    Math.min(request.limit(), matching.size()));
+            maxPageSize.accumulateAndGet(page.size(), Math::max);
+
+            final ScanResponse.Builder response = ScanResponse.builder().items(page);
+            if (matching.size() > page.size()) {
+                response.lastEvaluatedKey(Map.of("id", page.get(page.size() - 1).get("id")));
+            }
+            return response.build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "dynamodb";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package ewc.exocortex.pomodoro;
+
+import com.amazonaws.services.lambda.runtime.events.DynamodbEvent;
+import com.amazonaws.services.lambda.runtime.events.StreamsEventResponse;
+import com.amazonaws.services.lambda.runtime.events.models.dynamodb.StreamRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IngestionFeed and IngestionFeedHandler.
+ */
+class IngestionFeedTest {
+
+    private RecordingSink sink;
+
+    @BeforeEach
+    void setUp() {
+        sink = new RecordingSink();
+    }
+
+    private static IngestionPayload payload(final int i) {
+        final Instant start = Instant.parse("2025-01-01T10:00:00Z").plusSeconds(3600L * i);
+        return new IngestionPayload("Task " + i, "ученик", "Код", start, start.plusSeconds(1500), 25, "Done " + i);
+    }
+
+    private static Map<String, AttributeValue> item(final int i, final IngestionPayloadCodec codec) {
+        return Map.of(
+                DynamoIngestionService.PK, AttributeValue.builder().s("id-" + i).build(),
+                DynamoIngestionService.FEED_ATTRIBUTE, AttributeValue.builder().s(DynamoIngestionService.FEED).build(),
+                DynamoIngestionService.PAYLOAD, codec.encode(payload(i)));
+    }
+
+    @Nested
+    @DisplayName("Feed")
+    class Feed {
+
+        private InMemoryChangeStreamSource source;
+        private IngestionFeed.Checkpoint checkpoint;
+        private IngestionFeed feed;
+
+        @BeforeEach
+        void setUp() {
+            source = new InMemoryChangeStreamSource();
+            checkpoint = IngestionFeed.Checkpoint.inMemory();
+            feed = new IngestionFeed(sink, checkpoint);
+        }
+
+        @Test
+        @DisplayName("should deliver inserts in order and skip other changes")
+        void shouldDeliverInsertsInOrder() {
+            source.insert(item(1, IngestionPayloadCodec.plain()));
+            source.append("REMOVE", Map.of());
+            source.insert(item(2, IngestionPayloadCodec.compressing(0)));
+
+            final IngestionFeed.Result result = feed.drain(source, 2);
+
+            assertFalse(result.failed());
+            assertEquals(2, result.delivered());
+            assertEquals(List.of("id-1", "id-2"), sink.ids());
+            assertEquals(payload(2), sink.records.get(1).payload());
+            assertEquals(source.read(null, 10).get(2).sequenceNumber(), checkpoint.load());
+        }
+
+        @Test
+        @DisplayName("should read nothing when no changes are new")
+        void shouldIdleWithoutChanges() {
+            source.insert(item(1, IngestionPayloadCodec.plain()));
+            feed.drain(source, 10);
+
+            final IngestionFeed.Result result = feed.drain(source, 10);
+
+            assertEquals(0, result.delivered());
+            assertEquals(List.of("id-1"), sink.ids());
+        }
+
+        @Test
+        @DisplayName("should redeliver from the failed record without losing or reordering")
+        void shouldResumeAfterFailure() {
+            for (int i = 1; i <= 3; i++) {
+                source.insert(item(i, IngestionPayloadCodec.plain()));
+            }
+            sink.failOn.add("id-2");
+
+            final IngestionFeed.Result failed = feed.drain(source, 10);
+
+            assertTrue(failed.failed());
+            assertEquals(1, failed.delivered());
+            assertEquals(source.read(null, 10).get(1).sequenceNumber(), failed.failedSequenceNumber());
+
+            sink.failOn.clear();
+            final IngestionFeed.Result resumed = feed.drain(source, 10);
+
+            assertFalse(resumed.failed());
+            assertEquals(List.of("id-1", "id-2", "id-3"), sink.ids());
+        }
+    }
+
+    @Nested
+    @DisplayName("Lambda handler")
+    class Handler {
+
+        private static DynamodbEvent.DynamodbStreamRecord streamRecord(final String sequenceNumber,
+                final Map<String, AttributeValue> item) {
+            final Map<String, com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue> image =
+                    new java.util.HashMap<>();
+            item.forEach((name, value) -> {
+                final var converted = new com.amazonaws.services.lambda.runtime.events.models.dynamodb.AttributeValue();
+                if (value.s() != null) {
+                    converted.setS(value.s());
+                } else {
+                    converted.setB(ByteBuffer.wrap(value.b().asByteArray()));
+                }
+                image.put(name, converted);
+            });
+            final StreamRecord dynamodb = new StreamRecord();
+            dynamodb.setSequenceNumber(sequenceNumber);
+            dynamodb.setNewImage(image);
+            final DynamodbEvent.DynamodbStreamRecord record = new DynamodbEvent.DynamodbStreamRecord();
+            record.setEventName("INSERT");
+            record.setDynamodb(dynamodb);
+            return record;
+        }
+
+        private static DynamodbEvent event(final DynamodbEvent.DynamodbStreamRecord... records) {
+            final DynamodbEvent event = new DynamodbEvent();
+            event.setRecords(List.of(records));
+            return event;
+        }
+
+        @Test
+        @DisplayName("should decode plain and compressed stream images")
+        void shouldDecodeImages() {
+            final StreamsEventResponse response = new IngestionFeedHandler(sink).handleRequest(event(
+                    streamRecord("100", item(1, IngestionPayloadCodec.plain())),
+                    streamRecord("200", item(2, IngestionPayloadCodec.compressing(0)))), null);
+
+            assertTrue(response.getBatchItemFailures().isEmpty());
+            assertEquals(List.of(payload(1), payload(2)), sink.records.stream().map(IngestionRecord::payload).toList());
+        }
+
+        @Test
+        @DisplayName("should report the first failed record so Lambda retries from it")
+        void shouldReportBatchItemFailure() {
+            sink.failOn.add("id-2");
+
+            final StreamsEventResponse response = new IngestionFeedHandler(sink).handleRequest(event(
+                    streamRecord("100", item(1, IngestionPayloadCodec.plain())),
+                    streamRecord("200", item(2, IngestionPayloadCodec.plain())),
+                    streamRecord("300", item(3, IngestionPayloadCodec.plain()))), null);
+
+            assertEquals(List.of("200"), response.getBatchItemFailures().stream()
+                    .map(StreamsEventResponse.BatchItemFailure::getItemIdentifier).toList());
+            assertEquals(List.of("id-1"), sink.ids());
+        }
+    }
+
+    /**
+     * Sink that records delivered records and fails on selected IDs.
+     */
+    static class RecordingSink implements IngestionSink {
+        final List<IngestionRecord> records = new ArrayList<>();
+        final Set<String> failOn = new HashSet<>();
+
+        @Override
+        public void accept(final IngestionRecord record) throws IOException {
+            if (failOn.contains(record.id())) {
+                throw new IOException("sink unavailable");
+            }
+            records.add(record);
+        }
+
+        List<String> ids() {
+            return records.stream().map(IngestionRecord::id).toList();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IngestionPayloadCodec.
+ */
+class IngestionPayloadCodecTest {
+
+    private static final Instant START = Instant.parse("2026-02-01T09:00:00Z");
+
+    private static IngestionPayload payload(final String outcome) {
+        return new IngestionPayload("Разобрать входящие", "профессионал", "Заметка",
+                START, START.plusSeconds(2700), 45, outcome);
+    }
+
+    private static String longOutcome() {
+        return "Сделал: разобрал входящие письма и закрыл три задачи. Рефлексия: отвлекался на чат, "
+                .repeat(40) + "Следующий шаг: подготовить отчёт.";
+    }
+
+    @Test
+    @DisplayName("should keep small payloads as plain JSON strings")
+    void shouldKeepSmallPayloadsPlain() {
+        final AttributeValue value = IngestionPayloadCodec.compressing(1024).encode(payload("Готово"));
+
+        assertNotNull(value.s());
+        assertEquals(payload("Готово"), IngestionPayloadCodec.decode(value));
+    }
+
+    @Test
+    @DisplayName("should compress payloads above the threshold behind a codec header")
+    void shouldCompressLargePayloads() throws Exception {
+        final IngestionPayload payload = payload(longOutcome());
+        final int jsonSize = DynamoIngestionService.MAPPER.writeValueAsBytes(payload).length;
+
+        final AttributeValue value = IngestionPayloadCodec.compressing(1024).encode(payload);
+
+        assertNull(value.s());
+        final byte[] data = value.b().asByteArray();
+        assertEquals(IngestionPayloadCodec.DEFLATE, data[0]);
+        assertTrue(data.length < jsonSize / 4, data.length + " vs " + jsonSize);
+        assertEquals(payload, IngestionPayloadCodec.decode(value));
+    }
+
+    @Test
+    @DisplayName("should never compress with the plain codec")
+    void shouldStayPlain() {
+        assertNotNull(IngestionPayloadCodec.plain().encode(payload(longOutcome())).s());
+    }
+
+    @Test
+    @DisplayName("should reject an unknown codec header")
+    void shouldRejectUnknownCodec() {
+        final AttributeValue value = AttributeValue.builder()
+                .b(SdkBytes.fromByteArray("\u0009garbage".getBytes(StandardCharsets.UTF_8)))
+                .build();
+
+        assertThrows(IllegalStateException.class, () -> IngestionPayloadCodec.decode(value));
+    }
+}
@@ -0,0 +1,146 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IngestionReader over a fake feed index.
+ */
+class IngestionReaderTest {
+
+    private long now;
+    private FakeDynamoDbClient client;
+    private DynamoIngestionService ingestion;
+    private IngestionReader reader;
+
+    @BeforeEach
+    void setUp() {
+        // Record IDs come from the real clock
+        now = System.currentTimeMillis();
+        client = new FakeDynamoDbClient();
+        ingestion = new DynamoIngestionService(client);
+        reader = new IngestionReader(client, Duration.ofSeconds(5), () -> now);
+    }
+
+    private void ingest(final int count) {
+        for (int i = 0; i < count; i++) {
+            final Instant end = Instant.ofEpochMilli(now);
+            ingestion.ingestSession(new IngestionPayload("Task " + i, "ученик", "Код",
+                    end.minusSeconds(1500), end, 25, "Done " + i));
+        }
+    }
+
+    @Test
+    @DisplayName("should page through records in completion order from a cursor")
+    void shouldPageFromCursor() {
+        ingest(7);
+        now += 10_000;
+
+        final IngestionReader.Page first = reader.read(null, 3);
+        final IngestionReader.Page second = reader.read(first.cursor(), 3);
+        final IngestionReader.Page third = reader.read(second.cursor(), 3);
+
+        final List<String> tasks = new ArrayList<>();
+        for (final IngestionReader.Page page : List.of(first, second, third)) {
+            page.records().forEach(record -> tasks.add(record.payload().task()));
+        }
+        assertEquals(List.of("Task 0", "Task 1", "Task 2", "Task 3", "Task 4", "Task 5", "Task 6"), tasks);
+        assertTrue(first.hasMore());
+        assertFalse(third.hasMore());
+        assertEquals(3, client.queries.get(0).limit());
+    }
+
+    @Test
+    @DisplayName("should hold back records younger than the settle delay")
+    void shouldHoldBackUnsettledRecords() {
+        ingest(2);
+        now += 1_000;
+
+        final IngestionReader.Page page = reader.read(null, 10);
+        assertTrue(page.records().isEmpty());
+        assertNull(page.cursor());
+
+        now += 5_000;
+        assertEquals(2, reader.read(page.cursor(), 10).records().size());
+    }
+
+    @Test
+    @DisplayName("should return nothing new after the last record")
+    void shouldReturnEmptyPageAtEnd() {
+        ingest(2);
+        now += 10_000;
+        final String cursor = reader.read(null, 10).cursor();
+
+        final IngestionReader.Page page = reader.read(cursor, 10);
+
+        assertTrue(page.records().isEmpty());
+        assertEquals(cursor, page.cursor());
+    }
+
+    @Test
+    @DisplayName("should cap the page size")
+    void shouldCapPageSize() {
+        reader.read(null, 10_000);
+
+        assertEquals(IngestionReader.MAX_PAGE_SIZE, client.queries.get(0).limit());
+    }
+
+    /**
+     * Fake client: stores put items and answers feed-index queries (id &lt; :before, after the start key).
+     */
+    static class FakeDynamoDbClient implements DynamoDbClient {
+        final List<Map<String, AttributeValue>> items = new ArrayList<>();
+        final List<QueryRequest> queries = new ArrayList<>();
+
+        @Override
+        public PutItemResponse putItem(final PutItemRequest request) throws SdkException {
+            items.add(request.item());
+            return PutItemResponse.builder().build();
+        }
+
+        @Override
+        public QueryResponse query(final QueryRequest request) throws SdkException {
+            queries.add(request);
+            final String before = request.expressionAttributeValues().get(":before").s();
+            final String after = request.hasExclusiveStartKey() ? request.exclusiveStartKey().get("id").s() : "";
+
+            final List<Map<String, AttributeValue>> matching = items.stream()
+                    .filter(item -> "sessions".equals(item.get("feed").s()))
+                    .filter(item -> item.get("id").s().compareTo(after) > 0)
+                    .filter(item -> item.get("id").s().compareTo(before) < 0)
+                    .sorted(Comparator.comparing(item -> item.get("id").s()))
+                    .toList();
+            final List<Map<String, AttributeValue>> page = matching.subList(0,
+                    Math.min(request.limit(), matching.size()));
+
+            final QueryResponse.Builder response = QueryResponse.builder().items(page);
+            if (matching.size() > page.size()) {
+                final Map<String, AttributeValue> last = page.get(page.size() - 1);
+                response.lastEvaluatedKey(Map.of("feed", last.get("feed"), "id", last.get("id")));
+            }
+            return response.build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "dynamodb";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
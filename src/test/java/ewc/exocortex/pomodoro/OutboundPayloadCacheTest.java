@@ -0,0 +1,63 @@
+package ewc.exocortex.pomodoro;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OutboundPayloadCache: spliced bodies must equal what Jackson would produce.
+ */
+class OutboundPayloadCacheTest {
+
+    private static final List<TelegramApi.Button> BUTTONS = List.of(
+            new TelegramApi.Button("5 минут", "duration:5"),
+            new TelegramApi.Button("\"Кавычки\"", "duration:30"));
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final OutboundPayloadCache cache = new OutboundPayloadCache(mapper);
+
+    @ParameterizedTest
+    @ValueSource(longs = {0L, 7L, 123456789L, -100123456789L, Long.MAX_VALUE, Long.MIN_VALUE})
+    @DisplayName("should splice any chat id into a plain message")
+    void shouldSpliceChatId(final long chatId) throws IOException {
+        final JsonNode actual = mapper.readTree(cache.message(chatId, "Сессия сохранена. Отдыхаем."));
+
+        assertEquals(jacksonTree(Map.of("chat_id", chatId, "text", "Сессия сохранена. Отдыхаем.")), actual);
+    }
+
+    @Test
+    @DisplayName("should encode the inline keyboard one button per row")
+    void shouldEncodeKeyboard() throws IOException {
+        final JsonNode actual = mapper.readTree(cache.messageWithKeyboard(42L, "Выберите:", BUTTONS));
+
+        final JsonNode expected = jacksonTree(Map.of(
+                "chat_id", 42L,
+                "text", "Выберите:",
+                "reply_markup", Map.of("inline_keyboard", List.of(
+                        List.of(Map.of("text", "5 минут", "callback_data", "duration:5")),
+                        List.of(Map.of("text", "\"Кавычки\"", "callback_data", "duration:30"))))));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("should reuse the cached suffix for different chats")
+    void shouldReuseSuffix() throws IOException {
+        final String first = new String(cache.messageWithKeyboard(1L, "Выберите:", BUTTONS));
+        final String second = new String(cache.messageWithKeyboard(22L, "Выберите:", BUTTONS));
+
+        assertEquals(first.substring(first.indexOf(',')), second.substring(second.indexOf(',')));
+    }
+
+    private JsonNode jacksonTree(final Map<String, Object> payload) throws IOException {
+        return mapper.readTree(mapper.writeValueAsBytes(payload));
+    }
+}
@@ -0,0 +1,130 @@
+package ewc.exocortex.pomodoro;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives PollingServer against a local HTTP stand-in for getUpdates.
+ */
+class PollingServerTest {
+
+    private static final long ADMIN_ID = 42L;
+
+    private HttpServer server;
+    private final Queue<String> responses = new ConcurrentLinkedQueue<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private RecordingTelegramApi telegramApi;
+    private InMemorySessionRepository sessionRepository;
+    private PollingServer pollingServer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.add(exchange.getRequestURI().getPath() + " "
+                    + new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            final String json = responses.isEmpty() ? "{\"ok\":true,\"result\":[]}" : responses.poll();
+            final byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        telegramApi = new RecordingTelegramApi();
+        sessionRepository = new InMemorySessionRepository();
+        final BotHandler botHandler = new BotHandler(new SecurityService(ADMIN_ID), telegramApi,
+                new DynamoIngestionService(null), sessionRepository, new NoOpTimerService());
+        pollingServer = new PollingServer(
+                new TelegramTransport(TelegramTransport.newHttpClient(Duration.ofSeconds(1)),
+                        "http://127.0.0.1:" + server.getAddress().getPort(), "TOKEN", Duration.ofSeconds(2)),
+                new StreamingUpdateParser(new JsonFactory()), botHandler, Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pollingServer.close();
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("should process a chat's updates in order and confirm them with the next poll")
+    void shouldProcessAndCommitOffset() throws Exception {
+        responses.add("{\"ok\":true,\"result\":["
+                + "{\"update_id\":100,\"message\":{\"chat\":{\"id\":42},\"text\":\"/start\"}},"
+                + "{\"update_id\":101,\"message\":{\"chat\":{\"id\":7},\"text\":\"/start\"}},"
+                + "{\"update_id\":102,\"callback_query\":{\"id\":\"cb\",\"message\":{\"chat\":{\"id\":42}},"
+                + "\"data\":\"duration:45\"}}]}");
+
+        assertEquals(3, pollingServer.pollOnce());
+        assertEquals(0, pollingServer.pollOnce());
+
+        assertEquals(SessionState.WAITING_FOR_TASK, sessionRepository.getSession(ADMIN_ID).status());
+        assertEquals(List.of("cb"), telegramApi.answeredCallbacks);
+        assertEquals(103, pollingServer.offset());
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(0).startsWith("/botTOKEN/getUpdates {\"offset\":0,\"timeout\":1,"), requests.get(0));
+        assertTrue(requests.get(1).contains("\"offset\":103"), requests.get(1));
+    }
+
+    @Test
+    @DisplayName("should keep the offset when getUpdates fails")
+    void shouldNotAdvanceOnFailure() {
+        server.removeContext("/");
+        server.createContext("/", exchange -> {
+            final byte[] body = "{\"ok\":false,\"error_code\":409,\"description\":\"Conflict\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(409, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+
+        final TelegramApiException error = assertThrows(TelegramApiException.class, pollingServer::pollOnce);
+
+        assertEquals(409, error.statusCode());
+        assertEquals(0, pollingServer.offset());
+    }
+
+    /**
+     * Telegram client that records outgoing calls.
+     */
+    static class RecordingTelegramApi implements TelegramApi {
+        final List<String> messages = new CopyOnWriteArrayList<>();
+        final List<String> answeredCallbacks = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Update parseUpdate(final String json) {
+            throw new UnsupportedOperationException("updates come from getUpdates");
+        }
+
+        @Override
+        public void sendMessage(final long chatId, final String text) {
+            messages.add(text);
+        }
+
+        @Override
+        public void sendMessageWithKeyboard(final long chatId, final String text, final List<Button> buttons) {
+            messages.add(text);
+        }
+
+        @Override
+        public void answerCallbackQuery(final String callbackQueryId) {
+            answeredCallbacks.add(callbackQueryId);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RateLimitedTelegramApi with a manual clock.
+ */
+class RateLimitedTelegramApiTest {
+
+    private static final long CHAT_ID = 42L;
+
+    private long now;
+    private final List<Long> sleeps = new ArrayList<>();
+    private RecordingTelegramApi delegate;
+    private RateLimitedTelegramApi api;
+
+    @BeforeEach
+    void setUp() {
+        now = 1_000_000_000L;
+        delegate = new RecordingTelegramApi();
+        api = new RateLimitedTelegramApi(delegate,
+                new RateLimitedTelegramApi.Limits(30, 30, 1, 3, 4, Duration.ofMillis(500), Duration.ofSeconds(20)),
+                () -> now,
+                nanos -> {
+                    sleeps.add(nanos);
+                    now += nanos;
+                });
+    }
+
+    @Test
+    @DisplayName("should send a burst within the per-chat limit immediately")
+    void shouldSendBurstImmediately() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            api.sendMessage(CHAT_ID, "m" + i);
+        }
+
+        assertEquals(3, delegate.sent.size());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    @DisplayName("should delay messages beyond the per-chat burst")
+    void shouldDelayBeyondBurst() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            api.sendMessage(CHAT_ID, "m" + i);
+        }
+
+        assertEquals(5, delegate.sent.size());
+        assertEquals(List.of(TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(1)), sleeps);
+    }
+
+    @Test
+    @DisplayName("should not delay other chats")
+    void shouldNotDelayOtherChats() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            api.sendMessage(CHAT_ID, "m" + i);
+        }
+        api.sendMessage(CHAT_ID + 1, "other");
+
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    @DisplayName("should wait retry_after and resend on 429")
+    void shouldRetryAfterTooManyRequests() throws Exception {
+        delegate.failures.add(new TelegramApiException(429,
+                "{\"ok\":false,\"error_code\":429,\"parameters\":{\"retry_after\":3}}", 3));
+
+        api.sendMessage(CHAT_ID, "Время вышло");
+
+        assertEquals(List.of("Время вышло"), delegate.sent);
+        assertEquals(List.of(TimeUnit.SECONDS.toNanos(3)), sleeps);
+    }
+
+    @Test
+    @DisplayName("should back off exponentially when 429 has no hint")
+    void shouldBackOffWithoutHint() throws Exception {
+        delegate.failures.add(new TelegramApiException(429, "{}", 0));
+        delegate.failures.add(new TelegramApiException(429, "{}", 0));
+
+        api.answerCallbackQuery("cb");
+
+        assertEquals(List.of(TimeUnit.MILLISECONDS.toNanos(500), TimeUnit.MILLISECONDS.toNanos(1000)), sleeps);
+    }
+
+    @Test
+    @DisplayName("should not retry other errors")
+    void shouldNotRetryOtherErrors() {
+        delegate.failures.add(new TelegramApiException(400, "Bad Request", 0));
+
+        assertThrows(TelegramApiException.class, () -> api.sendMessage(CHAT_ID, "x"));
+        assertTrue(delegate.sent.isEmpty());
+    }
+
+    @Test
+    @DisplayName("should give up when the wait exceeds the maximum delay")
+    void shouldGiveUpBeyondMaxDelay() {
+        delegate.failures.add(new TelegramApiException(429, "{}", 60));
+
+        assertThrows(IOException.class, () -> api.sendMessage(CHAT_ID, "x"));
+        assertTrue(delegate.sent.isEmpty());
+    }
+
+    @Test
+    @DisplayName("should give up within a few seconds with the Lambda defaults")
+    void shouldStayWithinLambdaBudget() {
+        api = new RateLimitedTelegramApi(delegate, RateLimitedTelegramApi.Limits.lambdaDefaults(), () -> now,
+                nanos -> {
+                    sleeps.add(nanos);
+                    now += nanos;
+                });
+        final long start = now;
+        delegate.failures.add(new TelegramApiException(429, "{}", 2));
+        delegate.failures.add(new TelegramApiException(429, "{}", 2));
+
+        assertThrows(IOException.class, () -> api.sendMessage(CHAT_ID, "x"));
+        assertTrue(now - start <= TimeUnit.SECONDS.toNanos(3), "spent " + (now - start) + " ns");
+    }
+
+    private static class RecordingTelegramApi implements TelegramApi {
+        final List<String> sent = new ArrayList<>();
+        final Deque<TelegramApiException> failures = new ArrayDeque<>();
+
+        @Override
+        public Update parseUpdate(final String json) {
+            return null;
+        }
+
+        @Override
+        public void sendMessage(final long chatId, final String text) throws IOException {
+            failNextIfQueued();
+            sent.add(text);
+        }
+
+        @Override
+        public void sendMessageWithKeyboard(final long chatId, final String text, final List<Button> buttons)
+                throws IOException {
+            failNextIfQueued();
+            sent.add(text);
+        }
+
+        @Override
+        public void answerCallbackQuery(final String callbackQueryId) throws IOException {
+            failNextIfQueued();
+            sent.add(callbackQueryId);
+        }
+
+        private void failNextIfQueued() throws TelegramApiException {
+            if (!failures.isEmpty()) {
+                throw failures.poll();
+            }
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package ewc.exocortex.pomodoro;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -49,4 +58,90 @@ class SecurityServiceTest {
             assertFalse(service.isAuthorized(ADMIN_ID));
         }
     }
+
+    @Nested
+    @DisplayName("Allowlist")
+    class Allowlist {
+
+        private static final Duration RELOAD_INTERVAL = Duration.ofMinutes(1);
+
+        @TempDir
+        Path dir;
+        private Path file;
+        private long now;
+        private List<Runnable> reloads;
+
+        @BeforeEach
+        void setUp() throws IOException {
+            file = dir.resolve("allowlist.txt");
+            Files.writeString(file, "# team\n111\n\n-100222 # group chat\n");
+            reloads = new ArrayList<>();
+        }
+
+        private SecurityService service() {
+            return new SecurityService(ADMIN_ID, SecurityService.fileSource(file), RELOAD_INTERVAL,
+                    () -> now, reloads::add);
+        }
+
+        @Test
+        @DisplayName("should allow the admin and every listed chat")
+        void shouldAllowListedChats() throws IOException {
+            final SecurityService service = service();
+
+            assertTrue(service.isAuthorized(ADMIN_ID));
+            assertTrue(service.isAuthorized(111L));
+            assertTrue(service.isAuthorized(-100222L));
+            assertFalse(service.isAuthorized(STRANGER_ID));
+            assertTrue(reloads.isEmpty(), "no reload within the interval");
+        }
+
+        @Test
+        @DisplayName("should reload in the background once the interval has passed")
+        void shouldHotReload() throws IOException {
+            final SecurityService service = service();
+            Files.writeString(file, String.valueOf(STRANGER_ID));
+            now += RELOAD_INTERVAL.toNanos();
+
+            assertTrue(service.isAuthorized(111L), "answered from the current set");
+            assertFalse(service.isAuthorized(STRANGER_ID));
+            assertEquals(1, reloads.size(), "one reload at a time");
+            reloads.get(0).run();
+
+            assertTrue(service.isAuthorized(STRANGER_ID));
+            assertFalse(service.isAuthorized(111L));
+            assertTrue(service.isAuthorized(ADMIN_ID));
+        }
+
+        @Test
+        @DisplayName("should keep the current allowlist when a reload fails")
+        void shouldKeepAllowlistOnFailure() throws IOException {
+            final SecurityService service = service();
+            Files.writeString(file, "not-a-chat-id");
+            now += RELOAD_INTERVAL.toNanos();
+
+            service.isAuthorized(111L);
+            reloads.get(0).run();
+
+            assertTrue(service.isAuthorized(111L));
+            assertEquals(1, reloads.size(), "next attempt waits for another interval");
+        }
+
+        @Test
+        @DisplayName("should start with the admin alone when the first load fails")
+        void shouldFallBackToAdminOnColdStart() throws IOException {
+            Files.delete(file);
+            final SecurityService service = service();
+
+            assertTrue(service.isAuthorized(ADMIN_ID));
+            assertFalse(service.isAuthorized(111L));
+            assertTrue(reloads.isEmpty());
+
+            Files.writeString(file, "111");
+            now += RELOAD_INTERVAL.toNanos();
+            service.isAuthorized(ADMIN_ID);
+            reloads.get(0).run();
+
+            assertTrue(service.isAuthorized(111L));
+        }
+    }
 }
@@ -0,0 +1,76 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SideEffects execution modes.
+ */
+class SideEffectsTest {
+
+    @Test
+    @DisplayName("sequential mode should run actions in order on the calling thread")
+    void shouldRunSequentially() throws Exception {
+        final List<String> calls = new ArrayList<>();
+        final Thread caller = Thread.currentThread();
+
+        SideEffects.sequential().runAll(
+                () -> calls.add("first:" + (Thread.currentThread() == caller)),
+                () -> calls.add("second:" + (Thread.currentThread() == caller)));
+
+        assertEquals(List.of("first:true", "second:true"), calls);
+    }
+
+    @Test
+    @DisplayName("concurrent mode should overlap actions")
+    void shouldOverlapActions() throws Exception {
+        // Each action waits for the other one to start; this only completes if they overlap
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final SideEffects.Action rendezvous = () -> {
+            bothStarted.countDown();
+            if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("Actions did not overlap");
+            }
+        };
+
+        SideEffects.concurrent().runAll(rendezvous, rendezvous);
+
+        assertEquals(0, bothStarted.getCount());
+    }
+
+    @Test
+    @DisplayName("concurrent mode should wait for all branches and rethrow the first failure")
+    void shouldRethrowFailure() {
+        final CountDownLatch slowBranchDone = new CountDownLatch(1);
+
+        final IOException thrown = assertThrows(IOException.class, () -> SideEffects.concurrent().runAll(
+                () -> {
+                    Thread.sleep(50);
+                    slowBranchDone.countDown();
+                },
+                () -> {
+                    throw new IOException("DynamoDB throttled");
+                }));
+
+        assertEquals("DynamoDB throttled", thrown.getMessage());
+        assertEquals(0, slowBranchDone.getCount(), "runAll must not return before every branch settles");
+    }
+
+    @Test
+    @DisplayName("pending action should surface its failure on await")
+    void shouldSurfacePendingFailure() throws Exception {
+        final SideEffects.Pending pending = SideEffects.concurrent().start(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThrows(IllegalStateException.class, pending::await);
+    }
+}
@@ -0,0 +1,146 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SpillQueue.
+ */
+class SpillQueueTest {
+
+    @TempDir
+    Path dir;
+    private Path file;
+    private SpillQueue queue;
+    private RecordingIngestionService target;
+
+    @BeforeEach
+    void setUp() {
+        file = dir.resolve(SpillQueue.FILE_NAME);
+        queue = new SpillQueue(file);
+        target = new RecordingIngestionService();
+    }
+
+    private static IngestionPayload payload(final int i) {
+        final Instant start = Instant.parse("2025-01-01T10:00:00Z").plusSeconds(3600L * i);
+        return new IngestionPayload("Task " + i, "ученик", "Код", start, start.plusSeconds(1500), 25, "Done " + i);
+    }
+
+    @Test
+    @DisplayName("should ingest spilled sessions in order and empty the queue")
+    void shouldDrainInOrder() throws IOException {
+        assertTrue(queue.isEmpty());
+        queue.append(payload(1));
+        queue.append(payload(2));
+        assertFalse(queue.isEmpty());
+
+        assertEquals(2, queue.drain(target));
+
+        assertEquals(List.of(payload(1), payload(2)), target.ingested);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    @DisplayName("should keep sessions that could not be ingested")
+    void shouldKeepRemainderOnFailure() throws IOException {
+        for (int i = 1; i <= 3; i++) {
+            queue.append(payload(i));
+        }
+        target.failAfter = 1;
+
+        assertThrows(IllegalStateException.class, () -> queue.drain(target));
+
+        assertEquals(List.of(payload(2), payload(3)), queue.read());
+        target.failAfter = Integer.MAX_VALUE;
+        assertEquals(2, queue.drain(target));
+        assertEquals(List.of(payload(1), payload(2), payload(3)), target.ingested);
+    }
+
+    @Test
+    @DisplayName("should accept appends while a drain waits on ingestion")
+    void shouldAppendDuringDrain() throws Exception {
+        queue.append(payload(1));
+        target.onIngest = () -> {
+            final Thread appender = Thread.ofVirtual().start(() -> {
+                try {
+                    queue.append(payload(2));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            try {
+                assertTrue(appender.join(Duration.ofSeconds(5)), "append must not wait for the drain");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        assertEquals(1, queue.drain(target));
+
+        assertEquals(List.of(payload(2)), queue.read());
+    }
+
+    @Test
+    @DisplayName("should discard a torn or corrupt tail")
+    void shouldDiscardCorruptTail() throws IOException {
+        queue.append(payload(1));
+        queue.append(payload(2));
+        final long firstRecordEnd = Files.size(file) / 2;
+        final byte[] bytes = Files.readAllBytes(file);
+        bytes[(int) firstRecordEnd + 12] ^= 0x55;
+        Files.write(file, bytes);
+        Files.write(file, new byte[] {0, 0, 0, 42, 1}, StandardOpenOption.APPEND);
+
+        assertEquals(List.of(payload(1)), queue.read());
+    }
+
+    @Test
+    @DisplayName("should not append behind a torn tail")
+    void shouldTruncateTornTailBeforeAppend() throws IOException {
+        queue.append(payload(1));
+        Files.write(file, new byte[] {0, 0, 0, 42, 1}, StandardOpenOption.APPEND);
+
+        final SpillQueue reopened = new SpillQueue(file);
+        reopened.append(payload(2));
+
+        assertEquals(List.of(payload(1), payload(2)), reopened.read());
+        assertEquals(2, reopened.drain(target));
+        assertEquals(List.of(payload(1), payload(2)), target.ingested);
+        assertTrue(reopened.isEmpty());
+    }
+
+    /**
+     * Ingestion service that records payloads, runs a hook on each call and fails after a number of calls.
+     */
+    static class RecordingIngestionService extends DynamoIngestionService {
+        final List<IngestionPayload> ingested = new ArrayList<>();
+        int failAfter = Integer.MAX_VALUE;
+        Runnable onIngest = () -> { };
+
+        RecordingIngestionService() {
+            super(null);
+        }
+
+        @Override
+        public void ingestSession(final IngestionPayload payload) {
+            if (ingested.size() >= failAfter) {
+                throw new IllegalStateException("throttled");
+            }
+            onIngest.run();
+            ingested.add(payload);
+        }
+    }
+}
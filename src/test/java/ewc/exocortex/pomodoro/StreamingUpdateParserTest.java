@@ -0,0 +1,86 @@
+package ewc.exocortex.pomodoro;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the streaming parser agrees with the tree parser on real-shaped updates.
+ */
+class StreamingUpdateParserTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final StreamingUpdateParser parser = new StreamingUpdateParser(mapper.getFactory());
+    private final TelegramService treeService =
+            new TelegramService("token", HttpClient.newHttpClient(), mapper, TelegramService.ParseMode.TREE);
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"update_id\":1,\"message\":{\"message_id\":5,\"from\":{\"id\":42,\"first_name\":\"Ева\"},"
+                    + "\"chat\":{\"id\":42,\"type\":\"private\"},\"date\":1,\"text\":\"/start\","
+                    + "\"entities\":[{\"offset\":0,\"length\":6,\"type\":\"bot_command\"}]}}",
+            "{\"update_id\":2,\"callback_query\":{\"id\":\"77\",\"from\":{\"id\":42},"
+                    + "\"message\":{\"message_id\":9,\"chat\":{\"id\":42},\"text\":\"Выберите\","
+                    + "\"reply_markup\":{\"inline_keyboard\":[[{\"text\":\"5\",\"callback_data\":\"duration:5\"}]]}},"
+                    + "\"chat_instance\":\"1\",\"data\":\"duration:5\"}}",
+            "{\"message\":{\"chat\":{\"id\":-100123456789},\"photo\":[{\"file_id\":\"a\",\"width\":90}]}}",
+            "{\"message\":{\"text\":\"before chat\",\"chat\":{\"id\":7}}}",
+            "{\"edited_message\":{\"chat\":{\"id\":42},\"text\":\"edited\"}}",
+            "{\"update_id\":3}"
+    })
+    @DisplayName("should match the tree parser")
+    void shouldMatchTreeParser(final String json) throws IOException {
+        assertEquals(treeService.parseUpdate(json), parser.parse(json));
+    }
+
+    @Test
+    @DisplayName("should prefer callback query regardless of field order")
+    void shouldPreferCallbackQuery() throws IOException {
+        final String json = "{\"message\":{\"chat\":{\"id\":1},\"text\":\"hi\"},"
+                + "\"callback_query\":{\"data\":\"role:ученик\",\"id\":\"cb\",\"message\":{\"chat\":{\"id\":2}}}}";
+
+        final TelegramApi.Update update = parser.parse(json);
+
+        assertTrue(update.isCallbackQuery());
+        assertEquals(2L, update.chatId());
+        assertEquals("role:ученик", update.callbackData());
+    }
+
+    @Test
+    @DisplayName("should parse a region of a char buffer")
+    void shouldParseCharRegion() throws IOException {
+        final String json = "xx{\"message\":{\"chat\":{\"id\":5},\"text\":\"Код\"}}yy";
+        final char[] chars = json.toCharArray();
+
+        final TelegramApi.Update update = parser.parse(chars, 2, chars.length - 4);
+
+        assertEquals(new TelegramApi.Update(5L, "Код", null, null), update);
+    }
+
+    @Test
+    @DisplayName("should parse a getUpdates response and confirm skipped updates too")
+    void shouldParseUpdatesResponse() throws IOException {
+        final String json = "{\"ok\":true,\"result\":["
+                + "{\"update_id\":10,\"message\":{\"chat\":{\"id\":1},\"text\":\"/start\"}},"
+                + "{\"update_id\":11,\"edited_message\":{\"chat\":{\"id\":1},\"text\":\"x\"}},"
+                + "{\"update_id\":12,\"callback_query\":{\"id\":\"cb\",\"message\":{\"chat\":{\"id\":2}},"
+                + "\"data\":\"duration:5\"}}]}";
+
+        final StreamingUpdateParser.Batch batch = parser.parseUpdates(json.getBytes(StandardCharsets.UTF_8), 0);
+
+        assertEquals(List.of(new TelegramApi.Update(1L, "/start", null, null, 10L),
+                new TelegramApi.Update(2L, null, "cb", "duration:5", 12L)), batch.updates());
+        assertEquals(13, batch.nextOffset());
+        assertEquals(13, parser.parseUpdates("{\"ok\":true,\"result\":[]}".getBytes(StandardCharsets.UTF_8),
+                13).nextOffset());
+    }
+}
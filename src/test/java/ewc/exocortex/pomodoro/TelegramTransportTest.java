@@ -0,0 +1,104 @@
+package ewc.exocortex.pomodoro;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises TelegramTransport against a local HTTP stand-in for the Bot API.
+ */
+class TelegramTransportTest {
+
+    private HttpServer server;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private volatile int status = 200;
+    private TelegramTransport transport;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            final String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            received.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " " + body);
+            final String json = switch (status) {
+                case 200 -> "{\"ok\":true,\"result\":true}";
+                case 429 -> "{\"ok\":false,\"error_code\":429,\"description\":\"Too Many Requests: retry after 7\","
+                        + "\"parameters\":{\"retry_after\":7}}";
+                default -> "{\"ok\":false,\"description\":\"Bad Request: chat not found\"}";
+            };
+            final byte[] response = json.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+        transport = new TelegramTransport(
+                TelegramTransport.newHttpClient(Duration.ofSeconds(1)),
+                "http://127.0.0.1:" + server.getAddress().getPort(),
+                "TOKEN",
+                Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("should post the body to the precomputed method endpoint")
+    void shouldPostToEndpoint() throws Exception {
+        transport.post(TelegramTransport.Method.SEND_MESSAGE,
+                "{\"chat_id\":1,\"text\":\"Работаем\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of("POST /botTOKEN/sendMessage {\"chat_id\":1,\"text\":\"Работаем\"}"), received);
+        assertEquals(new TelegramTransport.Metrics(1, 0, 0), transport.metrics());
+    }
+
+    @Test
+    @DisplayName("should surface the error body of non-200 responses")
+    void shouldFailOnErrorStatus() {
+        status = 400;
+
+        final IOException error = assertThrows(IOException.class, () -> transport.post(
+                TelegramTransport.Method.ANSWER_CALLBACK_QUERY, "{}".getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(error.getMessage().contains("400"));
+        assertTrue(error.getMessage().contains("chat not found"));
+        assertEquals(1, transport.metrics().failures());
+    }
+
+    @Test
+    @DisplayName("should expose retry_after of a 429 response")
+    void shouldExposeRetryAfter() {
+        status = 429;
+
+        final TelegramApiException error = assertThrows(TelegramApiException.class, () -> transport.post(
+                TelegramTransport.Method.SEND_MESSAGE, "{}".getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(error.isTooManyRequests());
+        assertEquals(7, error.retryAfterSeconds());
+    }
+
+    @Test
+    @DisplayName("warm-up should call getMe and never throw")
+    void shouldWarmUp() throws Exception {
+        transport.warmUp();
+        server.stop(0);
+        transport.warmUp();
+
+        assertEquals("GET /botTOKEN/getMe ", received.get(0));
+        assertEquals(2, transport.metrics().requests());
+        assertEquals(1, transport.metrics().failures());
+    }
+}
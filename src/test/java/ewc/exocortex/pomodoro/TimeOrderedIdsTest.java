@@ -0,0 +1,65 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TimeOrderedIds.
+ */
+class TimeOrderedIdsTest {
+
+    private long now = 1_767_225_600_000L;
+
+    @Test
+    @DisplayName("should produce strictly increasing strings within one millisecond")
+    void shouldIncreaseWithinMillisecond() {
+        final TimeOrderedIds ids = new TimeOrderedIds(() -> now);
+
+        final List<String> generated = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            generated.add(ids.next());
+        }
+
+        for (int i = 1; i < generated.size(); i++) {
+            assertTrue(generated.get(i - 1).compareTo(generated.get(i)) < 0, generated.get(i));
+        }
+        assertEquals(generated.size(), new HashSet<>(generated).size());
+    }
+
+    @Test
+    @DisplayName("should keep increasing when the clock goes back")
+    void shouldSurviveClockGoingBack() {
+        final TimeOrderedIds ids = new TimeOrderedIds(() -> now);
+        final String first = ids.next();
+        now -= 1000;
+
+        assertTrue(first.compareTo(ids.next()) < 0);
+    }
+
+    @Test
+    @DisplayName("should encode the timestamp and the UUIDv7 version and variant")
+    void shouldEncodeTimestamp() {
+        final String id = new TimeOrderedIds(() -> now).next();
+
+        final UUID uuid = UUID.fromString(id);
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(now, TimeOrderedIds.epochMillis(id));
+    }
+
+    @Test
+    @DisplayName("should sort between the lower bounds of its own and the next millisecond")
+    void shouldRespectLowerBounds() {
+        final String id = new TimeOrderedIds(() -> now).next();
+
+        assertTrue(TimeOrderedIds.lowerBound(now).compareTo(id) <= 0);
+        assertTrue(id.compareTo(TimeOrderedIds.lowerBound(now + 1)) < 0);
+    }
+}
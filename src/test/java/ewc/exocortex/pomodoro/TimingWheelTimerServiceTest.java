@@ -0,0 +1,200 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TimingWheelTimerService with a manual clock and an inline executor.
+ */
+class TimingWheelTimerServiceTest {
+
+    private static final Duration TICK = Duration.ofMillis(100);
+
+    @TempDir
+    Path dir;
+    private Path journal;
+    private long now;
+    private List<Long> fired;
+    private TimingWheelTimerService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = dir.resolve("timers.journal");
+        now = 1_700_000_000_000L;
+        fired = new ArrayList<>();
+        service = newService();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        service.close();
+    }
+
+    private TimingWheelTimerService newService() throws IOException {
+        final TimingWheelTimerService created =
+                new TimingWheelTimerService(journal, fired::add, TICK, () -> now, new InlineExecutor());
+        created.recover();
+        return created;
+    }
+
+    private int advance(final Duration duration) {
+        now += duration.toMillis();
+        return service.advanceTo(now);
+    }
+
+    @Test
+    @DisplayName("should fire a timer at its deadline and not before")
+    void shouldFireAtDeadline() {
+        service.createTimer(42L, 25);
+
+        assertEquals(0, advance(Duration.ofMinutes(25).minusMillis(1)));
+        assertTrue(fired.isEmpty());
+
+        assertEquals(1, advance(Duration.ofMillis(100)));
+        assertEquals(List.of(42L), fired);
+        assertEquals(0, service.pending());
+    }
+
+    @Test
+    @DisplayName("should fire timers across every wheel level in deadline order")
+    void shouldCascadeAcrossLevels() {
+        final int[] minutes = {1, 5, 30, 90, 600, 3000, 30000};
+        for (int i = minutes.length - 1; i >= 0; i--) {
+            service.createTimer(minutes[i], minutes[i]);
+        }
+
+        for (final int minute : minutes) {
+            now = 1_700_000_000_000L + TimeUnit.MINUTES.toMillis(minute) - 1;
+            service.advanceTo(now);
+            assertFalse(fired.contains((long) minute), "fired early: " + minute);
+            now += TICK.toMillis();
+            service.advanceTo(now);
+            assertEquals(minute, fired.get(fired.size() - 1));
+        }
+        assertEquals(minutes.length, fired.size());
+    }
+
+    @Test
+    @DisplayName("should not fire a cancelled timer")
+    void shouldCancel() {
+        final String name = service.createTimer(1L, 5);
+        service.createTimer(2L, 5);
+
+        service.cancelTimer(name);
+        service.cancelTimer(name);
+        advance(Duration.ofMinutes(6));
+
+        assertEquals(List.of(2L), fired);
+    }
+
+    @Test
+    @DisplayName("should restore pending timers after a restart and fire overdue ones")
+    void shouldRecoverFromJournal() throws IOException {
+        service.createTimer(1L, 5);
+        service.cancelTimer(service.createTimer(2L, 10));
+        service.createTimer(3L, 60);
+        service.close();
+        Files.writeString(journal, "+ torn", StandardOpenOption.APPEND);
+
+        now += TimeUnit.MINUTES.toMillis(30);
+        service = newService();
+
+        assertEquals(2, service.pending());
+        assertEquals(2, Files.readAllLines(journal).size(), "journal should be compacted");
+        assertEquals(1, advance(TICK));
+        assertEquals(List.of(1L), fired);
+        advance(Duration.ofMinutes(30));
+        assertEquals(List.of(1L, 3L), fired);
+    }
+
+    @Test
+    @DisplayName("should fire again after a crash before the listener returned")
+    void shouldRedeliverAfterCrash() throws IOException {
+        service.close();
+        final List<Runnable> queued = new ArrayList<>();
+        service = new TimingWheelTimerService(journal, fired::add, TICK, () -> now, new InlineExecutor() {
+            @Override
+            public void execute(final Runnable command) {
+                queued.add(command);
+            }
+        });
+        service.recover();
+        service.createTimer(7L, 5);
+
+        assertEquals(1, advance(Duration.ofMinutes(6)));
+        // Crash: the expired timer never reached the listener
+        service.close();
+        service = newService();
+
+        assertEquals(1, advance(TICK));
+        assertEquals(List.of(7L), fired);
+        service.close();
+        service = newService();
+        assertEquals(0, service.pending());
+    }
+
+    @Test
+    @DisplayName("should refuse timers it could not journal")
+    void shouldRequireStart() throws IOException {
+        final TimingWheelTimerService notStarted =
+                new TimingWheelTimerService(journal, fired::add, TICK, () -> now, new InlineExecutor());
+
+        assertThrows(IllegalStateException.class, () -> notStarted.createTimer(1L, 5));
+        assertEquals(0, notStarted.pending());
+        service.close();
+        assertThrows(IllegalStateException.class, () -> service.createTimer(1L, 5));
+    }
+
+    /**
+     * Executor that runs tasks on the calling thread.
+     */
+    private static class InlineExecutor extends AbstractExecutorService {
+        private boolean shutdown;
+
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) {
+            return true;
+        }
+    }
+}
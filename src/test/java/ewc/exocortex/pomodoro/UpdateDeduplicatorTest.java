@@ -0,0 +1,136 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for UpdateDeduplicator.
+ */
+class UpdateDeduplicatorTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private long now;
+    private FakeDynamoDbClient client;
+    private UpdateDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        now = NOW;
+        client = new FakeDynamoDbClient();
+        deduplicator = new UpdateDeduplicator(client, () -> now);
+    }
+
+    @Test
+    @DisplayName("should claim an update once, with a short conditional lease")
+    void shouldClaimOnce() {
+        assertTrue(deduplicator.firstDelivery(100L));
+        assertFalse(deduplicator.firstDelivery(100L));
+
+        assertEquals(1, client.putRequests.size(), "a redelivery to the same container needs no call");
+        final PutItemRequest put = client.putRequests.get(0);
+        assertEquals("attribute_not_exists(#id) OR #expiresAt < :now", put.conditionExpression());
+        assertEquals("100", put.item().get("updateId").n());
+        assertEquals(String.valueOf(NOW / 1000 + 30), put.item().get("expiresAt").n());
+    }
+
+    @Test
+    @DisplayName("should keep a processed update for a day")
+    void shouldExtendOnceProcessed() {
+        deduplicator.firstDelivery(100L);
+        deduplicator.processed(100L);
+        now += UpdateDeduplicator.LEASE.toMillis() * 2;
+
+        assertFalse(deduplicator.firstDelivery(100L));
+        assertFalse(new UpdateDeduplicator(client, () -> now).firstDelivery(100L));
+        assertEquals(String.valueOf(NOW / 1000 + 86_400), client.putRequests.get(1).item().get("expiresAt").n());
+    }
+
+    @Test
+    @DisplayName("should let a redelivery take over a lapsed lease")
+    void shouldTakeOverLapsedLease() {
+        deduplicator.firstDelivery(100L);
+        now += UpdateDeduplicator.LEASE.toMillis() + 1000;
+
+        assertTrue(new UpdateDeduplicator(client, () -> now).firstDelivery(100L));
+        assertFalse(deduplicator.firstDelivery(100L), "the new lease is held by the other container");
+    }
+
+    @Test
+    @DisplayName("should recognize an update claimed by another container")
+    void shouldLoseToAnotherContainer() {
+        new UpdateDeduplicator(client, () -> now).firstDelivery(100L);
+
+        assertFalse(deduplicator.firstDelivery(100L));
+        assertFalse(deduplicator.firstDelivery(100L));
+        assertEquals(2, client.putRequests.size());
+    }
+
+    @Test
+    @DisplayName("should process updates when the table is unavailable or the ID is unknown")
+    void shouldFailOpen() {
+        client.unavailable = true;
+
+        assertTrue(deduplicator.firstDelivery(100L));
+        assertTrue(deduplicator.firstDelivery(0L));
+        assertTrue(deduplicator.firstDelivery(0L));
+        assertFalse(deduplicator.firstDelivery(100L));
+    }
+
+    @Test
+    @DisplayName("should forget the least recently seen updates beyond its capacity")
+    void shouldBoundMemory() {
+        final UpdateDeduplicator local = new UpdateDeduplicator(null);
+        for (long id = 1; id <= UpdateDeduplicator.MAX_REMEMBERED + 1; id++) {
+            assertTrue(local.firstDelivery(id));
+        }
+
+        assertFalse(local.firstDelivery(UpdateDeduplicator.MAX_REMEMBERED + 1));
+        assertTrue(local.firstDelivery(1L));
+    }
+
+    /**
+     * Fake client that keeps expiresAt per update ID and evaluates the lease condition.
+     */
+    static class FakeDynamoDbClient implements DynamoDbClient {
+        final Map<String, Long> expiresAt = new HashMap<>();
+        final List<PutItemRequest> putRequests = new ArrayList<>();
+        boolean unavailable;
+
+        @Override
+        public PutItemResponse putItem(final PutItemRequest request) throws SdkException {
+            putRequests.add(request);
+            if (unavailable) {
+                throw DynamoDbException.builder().message("Service unavailable").statusCode(503).build();
+            }
+            final String updateId = request.item().get("updateId").n();
+            final Long current = expiresAt.get(updateId);
+            if (request.conditionExpression() != null && current != null
+                    && current >= Long.parseLong(request.expressionAttributeValues().get(":now").n())) {
+                throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+            }
+            expiresAt.put(updateId, Long.parseLong(request.item().get("expiresAt").n()));
+            return PutItemResponse.builder().build();
+        }
+
+        @Override
+        public String serviceName() {
+            return "dynamodb";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ewc.exocortex.pomodoro;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for WebhookFilter.
+ */
+class WebhookFilterTest {
+
+    private static final long ADMIN_ID = 123456789L;
+    private static final long STRANGER_ID = 987654321L;
+
+    private final WebhookFilter filter = new WebhookFilter(null, new SecurityService(ADMIN_ID));
+
+    @Nested
+    @DisplayName("Body scan")
+    class BodyScan {
+
+        @Test
+        @DisplayName("should pass messages from authorized chats")
+        void shouldPassAuthorizedMessage() {
+            assertEquals(WebhookFilter.Verdict.PROCESS, filter.check("{\"update_id\":1,\"message\":{\"message_id\":5,"
+                    + "\"from\":{\"id\":" + STRANGER_ID + "},\"chat\":{\"id\":" + ADMIN_ID + ",\"type\":\"private\"},"
+                    + "\"text\":\"/start\"}}"));
+        }
+
+        @Test
+        @DisplayName("should reject unauthorized chats by the chat ID, not the sender")
+        void shouldRejectStranger() {
+            assertEquals(WebhookFilter.Verdict.UNAUTHORIZED, filter.check("{\"update_id\":1,\"message\":{"
+                    + "\"from\":{\"id\":" + ADMIN_ID + "},\"chat\":{\"id\":" + STRANGER_ID + "},\"text\":\"hi\"}}"));
+            assertEquals(WebhookFilter.Verdict.UNAUTHORIZED, filter.check("{\"update_id\":2,\"callback_query\":{"
+                    + "\"id\":\"77\",\"from\":{\"id\":" + ADMIN_ID + "},\"message\":{\"chat\":{\"id\":-100" + ADMIN_ID
+                    + "}},\"data\":\"duration:25\"}}"));
+        }
+
+        @Test
+        @DisplayName("should ignore update kinds the bot does not handle")
+        void shouldIgnoreOtherKinds() {
+            assertEquals(WebhookFilter.Verdict.IGNORE, filter.check(
+                    "{\"update_id\":3,\"edited_message\":{\"chat\":{\"id\":" + ADMIN_ID + "},\"text\":\"x\"}}"));
+            assertEquals(WebhookFilter.Verdict.IGNORE, filter.check(
+                    "{\"update_id\":4,\"channel_post\":{\"chat\":{\"id\":-1001},\"text\":\"x\"}}"));
+        }
+
+        @Test
+        @DisplayName("should not be fooled by keys inside strings or by formatting")
+        void shouldSkipStrings() {
+            final String text = "\\\"chat\\\":{\\\"id\\\":" + ADMIN_ID + "}";
+            assertEquals(WebhookFilter.Verdict.UNAUTHORIZED, filter.check("{\"message\":{\"text\":\"" + text
+                    + "\",\"chat\" : {\n  \"id\" : " + STRANGER_ID + "}}}"));
+            final char[] chars = ("xx{\"message\":{\"chat\":{\"id\":" + ADMIN_ID + "}}}yy").toCharArray();
+            assertEquals(WebhookFilter.Verdict.PROCESS, filter.check(CharBuffer.wrap(chars, 2, chars.length - 4)));
+        }
+
+        @Test
+        @DisplayName("should leave bodies it cannot classify to the parser")
+        void shouldPassUnknown() {
+            assertEquals(WebhookFilter.Verdict.PROCESS, filter.check("eyJtZXNzYWdlIjp7fX0="));
+            assertEquals(WebhookFilter.Verdict.PROCESS, filter.check("{\"message\":{\"text\":\"no chat\"}}"));
+            assertEquals(WebhookFilter.Verdict.PROCESS, filter.check("{\"message\":{\"chat\":{\"id\":\"x\"}}}"));
+            assertEquals(WebhookFilter.Verdict.PROCESS, filter.check("{\"message\":{\"text\":\"unterminated"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Secret token")
+    class SecretToken {
+
+        @Test
+        @DisplayName("should accept any request when no secret is configured")
+        void shouldAcceptWithoutSecret() {
+            assertFalse(filter.requiresSecret());
+            assertTrue(filter.acceptsSecret(null));
+        }
+
+        @Test
+        @DisplayName("should accept only the configured secret")
+        void shouldCheckSecret() {
+            final WebhookFilter secured = new WebhookFilter("s3cr3t", new SecurityService(ADMIN_ID));
+
+            assertTrue(secured.requiresSecret());
+            assertTrue(secured.acceptsSecret("s3cr3t"));
+            assertFalse(secured.acceptsSecret("s3cr3"));
+            assertFalse(secured.acceptsSecret(null));
+        }
+    }
+}